@@ -0,0 +1,75 @@
+package com.connect4.connect4javafx.benchmarks;
+
+import com.connect4.connect4javafx.BitBoard;
+import com.connect4.connect4javafx.BoardSpec;
+
+/**
+ * The fixed suite of positions the benchmarks run on, so results stay comparable between runs.
+ * Each position is a sequence of 1-based columns, starting with the computer's move as in the game,
+ * and leaves the computer to move with no immediate win for either side.
+ */
+public final class BenchmarkPositions {
+    public static final String OPENING = "4453";
+    public static final String MIDGAME = "625562146625";
+    // 18 empty cells, so the search hands over to the endgame solver
+    public static final String ENDGAME = "527546617341131544244332";
+    public static final BoardSpec BOARD_SPEC = BoardSpec.STANDARD;
+    private static final int COMPUTER_PLAYER = 2;
+    private static final int HUMAN_PLAYER = 1;
+
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * Returns the suite position with the given name.
+     *
+     * @param  name  "opening", "midgame" or "endgame"
+     *
+     * @return       the moves of the position
+     */
+    public static String moves(String name) {
+        return switch (name) {
+            case "opening" -> OPENING;
+            case "midgame" -> MIDGAME;
+            case "endgame" -> ENDGAME;
+            default -> throw new IllegalArgumentException("Unknown position " + name);
+        };
+    }
+
+    /**
+     * Plays a sequence of moves on an empty board array, as Connect4Game stores it (row 0 is the top).
+     *
+     * @param  moves  the 1-based columns of the moves
+     *
+     * @return        the board, 2 for the computer's tokens and 1 for the human's
+     */
+    public static int[][] board(String moves) {
+        int[][] board = BOARD_SPEC.newBoard();
+        int player = COMPUTER_PLAYER;
+        for (char move : moves.toCharArray()) {
+            int column = move - '1';
+            int row = BOARD_SPEC.rows() - 1;
+            while (board[row][column] != 0) {
+                row--;
+            }
+            board[row][column] = player;
+            player = player == COMPUTER_PLAYER ? HUMAN_PLAYER : COMPUTER_PLAYER;
+        }
+        return board;
+    }
+
+    /**
+     * Plays a sequence of moves on an empty bitboard.
+     *
+     * @param  moves  the 1-based columns of the moves
+     *
+     * @return        the position
+     */
+    public static BitBoard position(String moves) {
+        BitBoard position = new BitBoard(BOARD_SPEC, COMPUTER_PLAYER);
+        for (char move : moves.toCharArray()) {
+            position.play(move - '1');
+        }
+        return position;
+    }
+}
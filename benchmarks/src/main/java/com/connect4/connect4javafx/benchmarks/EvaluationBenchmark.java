@@ -0,0 +1,87 @@
+package com.connect4.connect4javafx.benchmarks;
+
+import com.connect4.connect4javafx.BitBoard;
+import com.connect4.connect4javafx.EngineConfig;
+import com.connect4.connect4javafx.Evaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the leaf work of the search on the suite positions: evaluating a position from scratch,
+ * updating the incremental evaluation around a move, and testing every column for a winning move.
+ * Each evaluator registered in EngineConfig is measured, so a new one can be compared per leaf with the old.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    private static final int COMPUTER_PLAYER = 2;
+
+    @Param({"opening", "midgame", "endgame"})
+    public String position;
+
+    @Param({"window", "threat"})
+    public String evaluatorName;
+
+    private BitBoard board;
+    private Evaluator evaluator;
+    private int moveColumn;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BenchmarkPositions.position(BenchmarkPositions.moves(position));
+        evaluator = EngineConfig.evaluatorFactory(evaluatorName).get();
+        evaluator.reset(board);
+        moveColumn = 0;
+        while (!board.canPlay(moveColumn)) {
+            moveColumn++;
+        }
+    }
+
+    /**
+     * Scores the position from scratch, as a search does once per root.
+     */
+    @Benchmark
+    public int evaluateFromScratch() {
+        evaluator.reset(board);
+        return evaluator.evaluate(COMPUTER_PLAYER);
+    }
+
+    /**
+     * Plays a move, scores the position and takes the move back, as a search does at every leaf.
+     */
+    @Benchmark
+    public int evaluateIncremental() {
+        int bit = board.getFreeBit(moveColumn);
+        int player = board.getPlayerToMove();
+        evaluator.play(bit, player);
+        int score = evaluator.evaluate(COMPUTER_PLAYER);
+        evaluator.undo(bit, player);
+        return score;
+    }
+
+    @Benchmark
+    public void isWinningMove(Blackhole blackhole) {
+        for (int column = 0; column < board.getColumns(); column++) {
+            if (board.canPlay(column)) {
+                blackhole.consume(board.isWinningMove(column));
+            }
+        }
+    }
+}
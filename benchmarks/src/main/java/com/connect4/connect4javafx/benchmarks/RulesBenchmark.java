@@ -0,0 +1,92 @@
+package com.connect4.connect4javafx.benchmarks;
+
+import com.connect4.connect4javafx.ComputerPlayer;
+import com.connect4.connect4javafx.Connect4Game;
+import com.connect4.connect4javafx.GameView;
+import com.connect4.connect4javafx.HumanPlayer;
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the game-over checks of Connect4Game on the suite positions: the check from the
+ * last move that the game uses, and the full-board scans it keeps as static helpers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RulesBenchmark {
+    @Param({"opening", "midgame", "endgame"})
+    public String position;
+
+    private ComputerPlayer computerPlayer;
+    private Connect4Game game;
+    private int[][] board;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String moves = BenchmarkPositions.moves(position);
+        board = BenchmarkPositions.board(moves);
+
+        computerPlayer = new ComputerPlayer("computerPlayer", Color.RED);
+        HumanPlayer humanPlayer = new HumanPlayer("humanPlayer", Color.BLUE);
+        game = new Connect4Game(computerPlayer, humanPlayer, GameView.NONE, BenchmarkPositions.BOARD_SPEC);
+        int[][] replay = BenchmarkPositions.BOARD_SPEC.newBoard();
+        for (int i = 0; i < moves.length(); i++) {
+            int column = moves.charAt(i) - '1';
+            int row = BenchmarkPositions.BOARD_SPEC.rows() - 1;
+            while (replay[row][column] != 0) {
+                row--;
+            }
+            if (i % 2 == 0) {
+                replay[row][column] = 2;
+                game.applyComputerMove(new int[]{row + 1, column});
+            } else {
+                replay[row][column] = 1;
+                game.setSelectedColumn(column);
+                game.takeTurn(humanPlayer);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        computerPlayer.shutdown();
+    }
+
+    @Benchmark
+    public int checkGameWin() {
+        return game.checkGameWin();
+    }
+
+    @Benchmark
+    public int checkRows() {
+        return Connect4Game.checkRows(board);
+    }
+
+    @Benchmark
+    public int checkColumns() {
+        return Connect4Game.checkColumns(board);
+    }
+
+    @Benchmark
+    public int checkDiagonals() {
+        return Connect4Game.checkDiagonals(board);
+    }
+}
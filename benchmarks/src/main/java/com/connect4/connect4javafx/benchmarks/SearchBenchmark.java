@@ -0,0 +1,76 @@
+package com.connect4.connect4javafx.benchmarks;
+
+import com.connect4.connect4javafx.MinimaxAgent;
+import com.connect4.connect4javafx.SearchLimits;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full computer move, MinimaxAgent.takeTurn, at several depths on the suite positions.
+ * The transposition table is cleared before every move, so each one is searched from scratch.
+ * Besides moves per second, the nodes counter reports the search speed in nodes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param({"opening", "midgame", "endgame"})
+    public String position;
+
+    @Param({"4", "8", "12"})
+    public int depth;
+
+    private MinimaxAgent agent;
+    private int[][] board;
+
+    /**
+     * Counts the nodes searched, reported by JMH as a rate next to the move rate.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class SearchCounters {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        agent = new MinimaxAgent();
+        agent.setSearchLimits(SearchLimits.depth(depth));
+        board = BenchmarkPositions.board(BenchmarkPositions.moves(position));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        // A search takes milliseconds, so the per-invocation setup does not distort the timing
+        agent.getTranspositionTable().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        agent.shutdown();
+    }
+
+    @Benchmark
+    public int[] takeTurn(SearchCounters counters) {
+        int[] move = agent.takeTurn(board);
+        counters.nodes += agent.getNodes();
+        return move;
+    }
+}
@@ -0,0 +1,239 @@
+package com.connect4.connect4javafx;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a MinimaxAgent on a dedicated background thread, so that callers such as the JavaFX
+ * Application Thread never block on a search. Requests are served one at a time in order.
+ * A running search can be cancelled, in which case its future never completes normally.
+ * While the opponent is thinking, the engine can ponder: it searches its answer to each of the
+ * opponent's replies, the most likely reply first. If the reply actually played has already
+ * been answered, the move is returned at once (a ponder hit). Otherwise the pondering is stopped
+ * and the move is searched as usual (a ponder miss), still helped by the shared transposition table.
+ * Every request and every pondering has its own stop token, so stopping one can never stop,
+ * or be lost to, another. Ponder hits, misses and the time saved are published to EngineMetrics.
+ */
+public class AsyncEngine {
+    private static final int OPPONENT = 1;
+    private static final int COMPUTER = 2;
+    private final MinimaxAgent agent;
+    private final ExecutorService executor;
+    private CompletableFuture<int[]> pendingMove;
+    private AtomicBoolean moveStopToken = new AtomicBoolean();
+    private AtomicBoolean ponderStopToken = new AtomicBoolean();
+    private final Map<Long, PonderAnswer> ponderAnswers = new HashMap<>();
+    private int ponderGeneration;
+    private boolean pondered;
+    private long ponderHits;
+    private long ponderMisses;
+    private long ponderTimeSavedMillis;
+
+    /**
+     * A move found while pondering, with the limits it was searched with and how long it took.
+     */
+    private record PonderAnswer(int[] move, SearchLimits limits, long searchMillis) {
+    }
+
+    public AsyncEngine(MinimaxAgent agent) {
+        this.agent = agent;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connect4-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts searching for a move in the background.
+     * The board is copied, so the caller may keep changing its own board.
+     * If pondering already answered this position with the same limits, the future is already complete.
+     *
+     * @param  board   a 2D array representing the game board, with the computer to move
+     * @param  limits  the depth and time limits of the search
+     *
+     * @return         a future completed with the move, as returned by MinimaxAgent.takeTurn
+     */
+    public synchronized CompletableFuture<int[]> requestMove(int[][] board, SearchLimits limits) {
+        PonderAnswer answer = ponderAnswers.get(keyOf(board));
+        boolean wasPondering = pondered;
+        stopPondering();
+        if (wasPondering) {
+            if (answer != null && answer.limits().equals(limits)) {
+                ponderHits++;
+                ponderTimeSavedMillis += answer.searchMillis();
+                EngineMetrics.getInstance().recordPonderHit(answer.searchMillis());
+                pendingMove = CompletableFuture.completedFuture(answer.move().clone());
+                return pendingMove;
+            }
+            ponderMisses++;
+            EngineMetrics.getInstance().recordPonderMiss();
+        }
+
+        int[][] snapshot = copyOf(board);
+        AtomicBoolean stopToken = new AtomicBoolean();
+        moveStopToken = stopToken;
+        pendingMove = CompletableFuture.supplyAsync(() -> {
+            agent.setStopToken(stopToken);
+            agent.setSearchLimits(limits);
+            return agent.takeTurn(snapshot);
+        }, executor);
+        return pendingMove;
+    }
+
+    /**
+     * Starts pondering in the background: the opponent's most likely reply is predicted, then the
+     * computer's answer to every reply is searched, the predicted one first, until the opponent moves.
+     *
+     * @param  board   a 2D array representing the game board, with the opponent to move
+     * @param  limits  the depth and time limits the answers will be requested with
+     */
+    public synchronized void ponder(int[][] board, SearchLimits limits) {
+        stopPondering();
+        pondered = true;
+        int generation = ponderGeneration;
+        AtomicBoolean stopToken = new AtomicBoolean();
+        ponderStopToken = stopToken;
+        int[][] snapshot = copyOf(board);
+        executor.execute(() -> ponderReplies(snapshot, limits, generation, stopToken));
+    }
+
+    /**
+     * Searches the answers to the opponent's replies, on the engine thread.
+     *
+     * @param  board       a copy of the board, with the opponent to move
+     * @param  limits      the depth and time limits of the searches
+     * @param  generation  the pondering this task belongs to, it stops as soon as that is replaced
+     * @param  stopToken   the stop token of the pondering, set when it is replaced
+     */
+    private void ponderReplies(int[][] board, SearchLimits limits, int generation, AtomicBoolean stopToken) {
+        agent.setStopToken(stopToken);
+        agent.setSearchLimits(limits);
+        BitBoard position = BitBoard.fromArray(board, OPPONENT);
+        int predictedReply = isCurrent(generation) ? agent.findBestColumn(position) : -1;
+
+        int columns = position.getColumns();
+        for (int i = -1; i < columns; i++) {
+            // The predicted reply first, then the others from the centre out
+            int reply = i < 0 ? predictedReply : columns / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+            if (reply < 0 || (i >= 0 && reply == predictedReply)
+                    || !position.canPlay(reply) || position.isWinningMove(reply)) {
+                continue;
+            }
+            if (!isCurrent(generation)) {
+                return;
+            }
+            int row = position.getLowestFreeRow(reply);
+            board[row][reply] = OPPONENT;
+            long startTime = System.currentTimeMillis();
+            int[] move = agent.takeTurn(board);
+            long searchMillis = System.currentTimeMillis() - startTime;
+            synchronized (this) {
+                // An answer cut short by stopPondering is weaker than asked for, so it is not kept
+                if (generation == ponderGeneration) {
+                    ponderAnswers.put(keyOf(board), new PonderAnswer(move, limits, searchMillis));
+                }
+            }
+            board[row][reply] = 0;
+        }
+    }
+
+    private synchronized boolean isCurrent(int generation) {
+        return generation == ponderGeneration;
+    }
+
+    /**
+     * Stops the pondering task, if any, and forgets its answers.
+     */
+    private synchronized void stopPondering() {
+        ponderGeneration++;
+        ponderAnswers.clear();
+        pondered = false;
+        ponderStopToken.set(true);
+    }
+
+    /**
+     * Cancels the pending request and any pondering, and stops their search.
+     * The future of the cancelled request completes with a CancellationException.
+     */
+    public synchronized void cancel() {
+        stopPondering();
+        if (pendingMove != null && !pendingMove.isDone()) {
+            pendingMove.cancel(false);
+            moveStopToken.set(true);
+        }
+        pendingMove = null;
+    }
+
+    /**
+     * Cancels any pending request and stops the background thread.
+     * The agent's helper threads are released on the engine thread, once the cancelled search has returned.
+     */
+    public void shutdown() {
+        cancel();
+        executor.execute(agent::shutdown);
+        executor.shutdown();
+    }
+
+    private static long keyOf(int[][] board) {
+        return BitBoard.fromArray(board, COMPUTER).getKey();
+    }
+
+    private static int[][] copyOf(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int row = 0; row < board.length; row++) {
+            copy[row] = board[row].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the agent used for the searches.
+     *
+     * @return  the minimax agent
+     */
+    public MinimaxAgent getAgent() {
+        return agent;
+    }
+
+    /**
+     * Returns the number of requested moves that had already been found while pondering.
+     *
+     * @return  the number of ponder hits
+     */
+    public synchronized long getPonderHits() {
+        return ponderHits;
+    }
+
+    /**
+     * Returns the number of requested moves after pondering that still had to be searched.
+     *
+     * @return  the number of ponder misses
+     */
+    public synchronized long getPonderMisses() {
+        return ponderMisses;
+    }
+
+    /**
+     * Returns the share of requests after pondering that were ponder hits.
+     *
+     * @return  the ponder hit rate between 0 and 1, or 0 if the engine has not pondered yet
+     */
+    public synchronized double getPonderHitRate() {
+        long requests = ponderHits + ponderMisses;
+        return requests == 0 ? 0 : (double) ponderHits / requests;
+    }
+
+    /**
+     * Returns the search time the ponder hits saved, measured while their answers were pondered.
+     *
+     * @return  the time saved in milliseconds
+     */
+    public synchronized long getPonderTimeSavedMillis() {
+        return ponderTimeSavedMillis;
+    }
+}
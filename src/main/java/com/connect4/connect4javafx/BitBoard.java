@@ -0,0 +1,552 @@
+package com.connect4.connect4javafx;
+
+import java.util.Random;
+
+/**
+ * A Connect-4 position stored as one 64-bit mask per player plus a column-height vector.
+ * Each column uses rows + 1 bits, counted from the bottom of the column. The extra bit at
+ * the top of every column is always empty, which stops shifted masks from wrapping into
+ * the next column, so four-in-a-row can be found with a handful of shift-and-AND tests.
+ * Player values match the values used in the int[][] board: 1 for the human, 2 for the computer.
+ * A Zobrist hash of the stones and the player to move is kept up to date by every move, together
+ * with the hash of the left-right mirror image, so mirrored positions can share cache entries.
+ */
+public class BitBoard {
+    private static final long[][] ZOBRIST_KEYS = new long[2][Long.SIZE];
+    private static final long SIDE_TO_MOVE_KEY;
+    private static final int STANDARD_COLUMN_HEIGHT = BoardSpec.STANDARD.rows() + 1;
+    private final BoardSpec boardSpec;
+    private final boolean standard;
+    private final int columns;
+    private final int rows;
+    private final int columnHeight;
+    private final long bottomMask;
+    private final long boardMask;
+    private final long[] playerMasks = new long[2];
+    private final int[] heights;
+    private final int[] moveHistory;
+    private int moveCount;
+    private int stoneCount;
+    private int playerToMove;
+    private long hash;
+    private long mirroredHash;
+
+    static {
+        // Fixed seed so that hashes are the same from one run to the next
+        Random random = new Random(0x436F6E6E65637434L);
+        for (long[] playerKeys : ZOBRIST_KEYS) {
+            for (int bit = 0; bit < playerKeys.length; bit++) {
+                playerKeys[bit] = random.nextLong();
+            }
+        }
+        SIDE_TO_MOVE_KEY = random.nextLong();
+    }
+
+    public BitBoard(int columns, int rows, int playerToMove) {
+        this(new BoardSpec(columns, rows), playerToMove);
+    }
+
+    /**
+     * Creates an empty position.
+     *
+     * @param  boardSpec     the size of the board
+     * @param  playerToMove  the player who moves first (1 or 2)
+     */
+    public BitBoard(BoardSpec boardSpec, int playerToMove) {
+        int columns = boardSpec.columns();
+        int rows = boardSpec.rows();
+        this.boardSpec = boardSpec;
+        this.standard = boardSpec.isStandard();
+        this.columns = columns;
+        this.rows = rows;
+        this.columnHeight = rows + 1;
+        this.playerToMove = playerToMove;
+        this.hash = playerToMove == 2 ? SIDE_TO_MOVE_KEY : 0;
+        this.mirroredHash = hash;
+        this.heights = new int[columns];
+        this.moveHistory = new int[columns * rows];
+
+        long bottom = 0;
+        long columnMask = (1L << rows) - 1;
+        long all = 0;
+        for (int column = 0; column < columns; column++) {
+            heights[column] = column * columnHeight;
+            bottom |= 1L << (column * columnHeight);
+            all |= columnMask << (column * columnHeight);
+        }
+        this.bottomMask = bottom;
+        this.boardMask = all;
+    }
+
+    /**
+     * Creates a copy of another position, including its move history.
+     *
+     * @param  other  the position to copy
+     */
+    public BitBoard(BitBoard other) {
+        this.boardSpec = other.boardSpec;
+        this.standard = other.standard;
+        this.columns = other.columns;
+        this.rows = other.rows;
+        this.columnHeight = other.columnHeight;
+        this.bottomMask = other.bottomMask;
+        this.boardMask = other.boardMask;
+        this.playerMasks[0] = other.playerMasks[0];
+        this.playerMasks[1] = other.playerMasks[1];
+        this.heights = other.heights.clone();
+        this.moveHistory = other.moveHistory.clone();
+        this.moveCount = other.moveCount;
+        this.stoneCount = other.stoneCount;
+        this.playerToMove = other.playerToMove;
+        this.hash = other.hash;
+        this.mirroredHash = other.mirroredHash;
+    }
+
+    /**
+     * Converts a UI board into a bitboard position.
+     * Row 0 of the array is the top of the board, as used by Connect4Game.
+     *
+     * @param  board         a 2D array representing the game board
+     * @param  playerToMove  the player whose turn it is (1 or 2)
+     *
+     * @return               the equivalent bitboard position
+     */
+    public static BitBoard fromArray(int[][] board, int playerToMove) {
+        int rows = board.length;
+        int columns = board[0].length;
+        BitBoard position = new BitBoard(columns, rows, playerToMove);
+        for (int column = 0; column < columns; column++) {
+            for (int row = rows - 1; row >= 0 && board[row][column] != 0; row--) {
+                int bit = position.heights[column]++;
+                position.playerMasks[board[row][column] - 1] |= 1L << bit;
+                position.hash ^= ZOBRIST_KEYS[board[row][column] - 1][bit];
+                position.mirroredHash ^= ZOBRIST_KEYS[board[row][column] - 1][position.mirroredBit(bit, column)];
+                position.stoneCount++;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Checks whether a token can be dropped into the given column.
+     *
+     * @param  column  the column index to check
+     *
+     * @return         true if the column is not full, false otherwise
+     */
+    public boolean canPlay(int column) {
+        return heights[column] < column * columnHeight + rows;
+    }
+
+    /**
+     * Drops a token for the player to move into the given column and passes the turn.
+     * The column must be playable.
+     *
+     * @param  column  the column index to play
+     */
+    public void play(int column) {
+        int bit = heights[column]++;
+        playerMasks[playerToMove - 1] |= 1L << bit;
+        hash ^= ZOBRIST_KEYS[playerToMove - 1][bit] ^ SIDE_TO_MOVE_KEY;
+        mirroredHash ^= ZOBRIST_KEYS[playerToMove - 1][mirroredBit(bit, column)] ^ SIDE_TO_MOVE_KEY;
+        moveHistory[moveCount++] = column;
+        stoneCount++;
+        playerToMove = 3 - playerToMove;
+    }
+
+    /**
+     * Takes back the last move played with {@link #play(int)}.
+     */
+    public void undo() {
+        int column = moveHistory[--moveCount];
+        stoneCount--;
+        playerToMove = 3 - playerToMove;
+        int bit = --heights[column];
+        playerMasks[playerToMove - 1] &= ~(1L << bit);
+        hash ^= ZOBRIST_KEYS[playerToMove - 1][bit] ^ SIDE_TO_MOVE_KEY;
+        mirroredHash ^= ZOBRIST_KEYS[playerToMove - 1][mirroredBit(bit, column)] ^ SIDE_TO_MOVE_KEY;
+    }
+
+    /**
+     * Checks whether playing the given column would complete four-in-a-row for the player to move.
+     *
+     * @param  column  the column index of the move
+     *
+     * @return         true if the move wins the game, false otherwise
+     */
+    public boolean isWinningMove(int column) {
+        return isAlignment(playerMasks[playerToMove - 1] | (1L << heights[column]));
+    }
+
+    /**
+     * Checks whether the given player has four-in-a-row.
+     *
+     * @param  player  the player to check (1 or 2)
+     *
+     * @return         true if the player has won, false otherwise
+     */
+    public boolean hasWon(int player) {
+        return isAlignment(playerMasks[player - 1]);
+    }
+
+    /**
+     * Checks a mask for four aligned bits using shift-and-AND tests in all four directions.
+     *
+     * @param  mask  the stones of one player
+     *
+     * @return       true if the mask contains four-in-a-row, false otherwise
+     */
+    public boolean isAlignment(long mask) {
+        if (standard) {
+            return isStandardAlignment(mask);
+        }
+        // Horizontal
+        long pairs = mask & (mask >>> columnHeight);
+        if ((pairs & (pairs >>> (2 * columnHeight))) != 0) {
+            return true;
+        }
+        // Diagonal rising to the right
+        pairs = mask & (mask >>> (columnHeight + 1));
+        if ((pairs & (pairs >>> (2 * (columnHeight + 1)))) != 0) {
+            return true;
+        }
+        // Diagonal falling to the right
+        pairs = mask & (mask >>> (columnHeight - 1));
+        if ((pairs & (pairs >>> (2 * (columnHeight - 1)))) != 0) {
+            return true;
+        }
+        // Vertical
+        pairs = mask & (mask >>> 1);
+        return (pairs & (pairs >>> 2)) != 0;
+    }
+
+    /**
+     * Same as isAlignment for the standard board, where the shifts are constants the JIT can fold.
+     *
+     * @param  mask  the stones of one player
+     *
+     * @return       true if the mask contains four-in-a-row, false otherwise
+     */
+    private static boolean isStandardAlignment(long mask) {
+        long pairs = mask & (mask >>> STANDARD_COLUMN_HEIGHT);
+        if ((pairs & (pairs >>> (2 * STANDARD_COLUMN_HEIGHT))) != 0) {
+            return true;
+        }
+        pairs = mask & (mask >>> (STANDARD_COLUMN_HEIGHT + 1));
+        if ((pairs & (pairs >>> (2 * (STANDARD_COLUMN_HEIGHT + 1)))) != 0) {
+            return true;
+        }
+        pairs = mask & (mask >>> (STANDARD_COLUMN_HEIGHT - 1));
+        if ((pairs & (pairs >>> (2 * (STANDARD_COLUMN_HEIGHT - 1)))) != 0) {
+            return true;
+        }
+        pairs = mask & (mask >>> 1);
+        return (pairs & (pairs >>> 2)) != 0;
+    }
+
+    /**
+     * Returns every empty cell that would complete four-in-a-row for the given stones,
+     * whether or not the cell can be played yet.
+     *
+     * @param  stones  the stones of one player
+     *
+     * @return         the mask of the player's winning cells
+     */
+    public long winningCells(long stones) {
+        // Vertical: three stones right below the cell
+        long cells = (stones << 1) & (stones << 2) & (stones << 3);
+        if (standard) {
+            cells |= lineCompletions(stones, STANDARD_COLUMN_HEIGHT);
+            cells |= lineCompletions(stones, STANDARD_COLUMN_HEIGHT + 1);
+            cells |= lineCompletions(stones, STANDARD_COLUMN_HEIGHT - 1);
+            return cells & (boardMask ^ getOccupiedMask());
+        }
+        cells |= lineCompletions(stones, columnHeight);
+        cells |= lineCompletions(stones, columnHeight + 1);
+        cells |= lineCompletions(stones, columnHeight - 1);
+        return cells & (boardMask ^ getOccupiedMask());
+    }
+
+    /**
+     * Returns the cells completing a line of four along one direction: the cell is either at
+     * one end of three aligned stones or in a gap of the line.
+     *
+     * @param  stones  the stones of one player
+     * @param  shift   the bit distance between neighbouring cells of the direction
+     *
+     * @return         the mask of cells completing a line, occupied or not
+     */
+    private long lineCompletions(long stones, int shift) {
+        long pairs = (stones << shift) & (stones << (2 * shift));
+        long cells = pairs & (stones << (3 * shift));
+        cells |= pairs & (stones >>> shift);
+        pairs = (stones >>> shift) & (stones >>> (2 * shift));
+        cells |= pairs & (stones << shift);
+        cells |= pairs & (stones >>> (3 * shift));
+        return cells;
+    }
+
+    /**
+     * Returns the cells where the opponent of the player to move would complete four-in-a-row.
+     *
+     * @return  the mask of the opponent's winning cells
+     */
+    public long opponentWinningCells() {
+        return winningCells(playerMasks[2 - playerToMove]);
+    }
+
+    /**
+     * Returns the playable moves that do not let the opponent win on the next move.
+     * If the opponent threatens to win, only the blocking move is returned. If the opponent
+     * has two threats at once, or every move would play under one of the opponent's winning
+     * cells, no move is returned: the position is lost.
+     * The player to move must not have a winning move of their own.
+     *
+     * @return  the mask of the lowest free cells of the non-losing moves
+     */
+    public long nonLosingMoves() {
+        long possible = legalMoves();
+        long opponentWins = opponentWinningCells();
+        long forced = possible & opponentWins;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0) {
+                return 0;
+            }
+            possible = forced;
+        }
+        // Never play right below an opponent's winning cell
+        return possible & ~(opponentWins >>> 1);
+    }
+
+    /**
+     * Returns the mask of all playable cells of a column.
+     *
+     * @param  column  the column index
+     *
+     * @return         the mask of the column
+     */
+    public long columnMask(int column) {
+        return ((1L << rows) - 1) << (column * columnHeight);
+    }
+
+    /**
+     * Returns a mask with one bit set for the lowest free cell of every column that is not full.
+     *
+     * @return  the mask of playable cells
+     */
+    public long legalMoves() {
+        return (getOccupiedMask() + bottomMask) & boardMask;
+    }
+
+    /**
+     * Checks whether every cell of the board is occupied.
+     *
+     * @return  true if the board is full, false otherwise
+     */
+    public boolean isFull() {
+        return stoneCount == columns * rows;
+    }
+
+    /**
+     * Returns the 0-based array row (counted from the top, as in the UI board) where a token
+     * dropped into the given column would land.
+     *
+     * @param  column  the column index to check
+     *
+     * @return         the array row index, or -1 if the column is full
+     */
+    public int getLowestFreeRow(int column) {
+        if (!canPlay(column)) {
+            return -1;
+        }
+        return rows - 1 - (heights[column] - column * columnHeight);
+    }
+
+    /**
+     * Returns the bit index of the cell where a token dropped into the given column would land.
+     *
+     * @param  column  the column index, which must not be full
+     *
+     * @return         the bit index of the lowest free cell
+     */
+    public int getFreeBit(int column) {
+        return heights[column];
+    }
+
+    /**
+     * Returns the bit index of a cell.
+     *
+     * @param  column  the column index
+     * @param  height  the height of the cell, counted from the bottom of the column
+     *
+     * @return         the bit index of the cell
+     */
+    public int bitIndex(int column, int height) {
+        return column * columnHeight + height;
+    }
+
+    /**
+     * Returns the stones of the given player.
+     *
+     * @param  player  the player (1 or 2)
+     *
+     * @return         the mask of the player's stones
+     */
+    public long getPlayerMask(int player) {
+        return playerMasks[player - 1];
+    }
+
+    /**
+     * Returns the mask of all occupied cells.
+     *
+     * @return  the mask of all stones on the board
+     */
+    public long getOccupiedMask() {
+        return playerMasks[0] | playerMasks[1];
+    }
+
+    /**
+     * Returns the Zobrist hash of the position, including the player to move.
+     *
+     * @return  the hash of the position
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the Zobrist hash of the left-right mirror image of the position.
+     *
+     * @return  the hash the mirrored position would have
+     */
+    public long getMirroredHash() {
+        return mirroredHash;
+    }
+
+    /**
+     * Returns the smaller of the hash and the mirrored hash, which is the same for a position
+     * and its mirror image. Moves cached under this hash belong to the orientation with that
+     * hash, see isMirrorCanonical.
+     *
+     * @return  the mirror-independent hash of the position
+     */
+    public long getCanonicalHash() {
+        return Math.min(hash, mirroredHash);
+    }
+
+    /**
+     * Checks whether the canonical hash is the hash of the mirror image, so that columns read
+     * from or written to a cache under the canonical hash have to be mirrored.
+     *
+     * @return  true if the mirrored orientation is the canonical one
+     */
+    public boolean isMirrorCanonical() {
+        return mirroredHash < hash;
+    }
+
+    /**
+     * Checks whether the position is its own mirror image, so that every move has a mirrored
+     * twin of the same value.
+     *
+     * @return  true if the position is left-right symmetric
+     */
+    public boolean isSymmetric() {
+        return getKey() == getMirroredKey();
+    }
+
+    /**
+     * Returns the column that mirrors the given one.
+     *
+     * @param  column  a column index
+     *
+     * @return         the column at the same distance from the other edge
+     */
+    public int mirrorColumn(int column) {
+        return columns - 1 - column;
+    }
+
+    /**
+     * Returns the bit the given bit of a column is mirrored onto.
+     *
+     * @param  bit     the bit index of a cell
+     * @param  column  the column of the cell
+     *
+     * @return         the bit index of the mirrored cell
+     */
+    private int mirroredBit(int bit, int column) {
+        return bit + (columns - 1 - 2 * column) * columnHeight;
+    }
+
+    /**
+     * Returns a key that identifies the position exactly: the stones of the player to move plus
+     * the mask of all stones. Unlike the Zobrist hash it cannot collide, and it does not depend
+     * on which player number is to move, so it suits files shared between runs such as the
+     * opening book.
+     *
+     * @return  the exact key of the position
+     */
+    public long getKey() {
+        return playerMasks[playerToMove - 1] + getOccupiedMask();
+    }
+
+    /**
+     * Returns the key of the left-right mirror image of the position.
+     *
+     * @return  the exact key of the mirrored position
+     */
+    public long getMirroredKey() {
+        long key = getKey();
+        long columnMask = (1L << columnHeight) - 1;
+        long mirrored = 0;
+        for (int column = 0; column < columns; column++) {
+            long columnBits = (key >>> (column * columnHeight)) & columnMask;
+            mirrored |= columnBits << ((columns - 1 - column) * columnHeight);
+        }
+        return mirrored;
+    }
+
+    /**
+     * Returns the player whose turn it is.
+     *
+     * @return  1 for the human player, 2 for the computer player
+     */
+    public int getPlayerToMove() {
+        return playerToMove;
+    }
+
+    /**
+     * Returns the number of stones on the board.
+     *
+     * @return  the number of stones on the board
+     */
+    public int getStoneCount() {
+        return stoneCount;
+    }
+
+    /**
+     * Returns the size of the board.
+     *
+     * @return  the board spec
+     */
+    public BoardSpec getBoardSpec() {
+        return boardSpec;
+    }
+
+    /**
+     * Returns the number of columns
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+}
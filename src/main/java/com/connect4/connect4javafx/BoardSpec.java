@@ -0,0 +1,59 @@
+package com.connect4.connect4javafx;
+
+/**
+ * The size of a Connect-4 board. Every game and position carries its own spec, so games of
+ * different sizes can run side by side in one JVM. The standard 7x6 board has fast paths in BitBoard.
+ *
+ * @param columns  the number of columns
+ * @param rows     the number of rows
+ */
+public record BoardSpec(int columns, int rows) {
+    /** The standard board: 7 columns and 6 rows. */
+    public static final BoardSpec STANDARD = new BoardSpec(7, 6);
+
+    public BoardSpec {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("A board needs at least one column and one row, was " + columns + "x" + rows);
+        }
+        if ((rows + 1) * columns > Long.SIZE) {
+            throw new IllegalArgumentException("A " + columns + "x" + rows + " board does not fit in a 64-bit mask");
+        }
+        // BitBoard looks for lines by shifting masks up to three diagonal steps of rows + 2 bits,
+        // and Java takes a long's shift distance mod 64, so a longer shift would wrap round
+        if (3 * (rows + 2) >= Long.SIZE) {
+            throw new IllegalArgumentException("A " + columns + "x" + rows + " board is too tall for the line tests");
+        }
+    }
+
+    /**
+     * Returns the number of cells of the board.
+     *
+     * @return  columns times rows
+     */
+    public int cells() {
+        return columns * rows;
+    }
+
+    /**
+     * Checks whether this is the standard 7x6 board.
+     *
+     * @return  true for the standard board, false otherwise
+     */
+    public boolean isStandard() {
+        return columns == STANDARD.columns && rows == STANDARD.rows;
+    }
+
+    /**
+     * Creates an empty board array of this size, as used by Connect4Game (row 0 is the top).
+     *
+     * @return  the empty board
+     */
+    public int[][] newBoard() {
+        return new int[rows][columns];
+    }
+
+    @Override
+    public String toString() {
+        return columns + "x" + rows;
+    }
+}
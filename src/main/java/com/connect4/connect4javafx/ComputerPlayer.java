@@ -2,11 +2,17 @@ package com.connect4.connect4javafx;
 
 import javafx.scene.paint.Color;
 
+import java.util.concurrent.CompletableFuture;
+
 public class ComputerPlayer extends Player{
     private final MinimaxAgent miniMaxAgent;
+    private final AsyncEngine asyncEngine;
+    private SearchLimits searchLimits = SearchLimits.depth(8);
     public ComputerPlayer(String name, Color color) {
         super(name, color);
         this.miniMaxAgent = new MinimaxAgent();
+        this.miniMaxAgent.setOpeningBook(OpeningBook.openDefault());
+        this.asyncEngine = new AsyncEngine(miniMaxAgent);
     }
     /**
      * Generates a move based on the current state of the board and the selected column.
@@ -18,6 +24,60 @@ public class ComputerPlayer extends Player{
      */
     @Override
     public int[] takeTurn(int[][] board) {
+        miniMaxAgent.setSearchLimits(searchLimits);
         return miniMaxAgent.takeTurn(board);
     }
+
+    /**
+     * Starts searching for a move on the engine thread, without blocking the caller.
+     *
+     * @param  board            a 2D array representing the game board
+     *
+     * @return                  a future completed with the move to be made
+     */
+    public CompletableFuture<int[]> requestTurn(int[][] board) {
+        return asyncEngine.requestMove(board, searchLimits);
+    }
+
+    /**
+     * Starts searching the computer's answers to the human's replies while the human is thinking.
+     * Pondering stops as soon as the next move is requested.
+     *
+     * @param  board            a 2D array representing the game board, with the human to move
+     */
+    public void ponder(int[][] board) {
+        asyncEngine.ponder(board, searchLimits);
+    }
+
+    /**
+     * Returns the engine that searches the computer's moves, for its pondering metrics.
+     *
+     * @return                  the asynchronous engine
+     */
+    public AsyncEngine getAsyncEngine() {
+        return asyncEngine;
+    }
+
+    /**
+     * Cancels a move requested with requestTurn, if it is still being searched.
+     */
+    public void cancelTurn() {
+        asyncEngine.cancel();
+    }
+
+    /**
+     * Cancels any search and stops the engine thread. The player cannot move afterwards.
+     */
+    public void shutdown() {
+        asyncEngine.shutdown();
+    }
+
+    /**
+     * Sets the depth and time limits of the computer's searches.
+     *
+     * @param  searchLimits     the search limits
+     */
+    public void setSearchLimits(SearchLimits searchLimits) {
+        this.searchLimits = searchLimits;
+    }
 }
@@ -1,24 +1,51 @@
 package com.connect4.connect4javafx;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 public class Connect4Game {
     private final int[][] board;
-    private static int noOfColumns;
-    private static int noOfRows;
+    private final BoardSpec boardSpec;
+    private final int noOfColumns;
+    private final int noOfRows;
     private final ComputerPlayer computerPlayer;
     private final HumanPlayer humanPlayer;
     private int selectedColumn;
-    private final GameController gameController;
+    private final GameView gameView;
+    private int lastMoveRow = -1;
+    private int lastMoveColumn = -1;
+    private int moveCount;
+    private final int[][] winningCells = new int[4][2];
+    private boolean hasWinningCells;
+    private final byte[] moves;
+    private final int[] moveMillis;
+    private final long startMillis = System.currentTimeMillis();
+    private long lastMoveNanos = System.nanoTime();
+    private int firstPlayer;
+    private int result = -1;
 
     public Connect4Game(ComputerPlayer computerPlayer, HumanPlayer humanPlayer, GameController gameController) {
+        this(computerPlayer, humanPlayer, gameController, gameController.getBoardSpec());
+    }
+
+    /**
+     * Creates a game that shows its tokens through any view, so it can also be played without JavaFX.
+     *
+     * @param  computerPlayer  the computer player
+     * @param  humanPlayer     the human player
+     * @param  gameView        the view that shows the tokens, or GameView.NONE
+     * @param  boardSpec       the size of the board
+     */
+    public Connect4Game(ComputerPlayer computerPlayer, HumanPlayer humanPlayer, GameView gameView, BoardSpec boardSpec) {
         this.computerPlayer = computerPlayer;
         this.humanPlayer = humanPlayer;
-        this.gameController = gameController;
-        noOfColumns = GameController.getNoOfColumns();
-        noOfRows = gameController.getNoOfRows();
-        board = new int[noOfRows][noOfColumns];
+        this.gameView = gameView;
+        this.boardSpec = boardSpec;
+        noOfColumns = boardSpec.columns();
+        noOfRows = boardSpec.rows();
+        board = boardSpec.newBoard();
+        moves = new byte[boardSpec.cells()];
+        moveMillis = new int[boardSpec.cells()];
         initialiseArray();
     }
 
@@ -37,32 +64,114 @@ public class Connect4Game {
      * Takes a turn for the player.
      * Checks if the move made was valid and asks player to make another move if not.
      * Increments the number of tokens for each player after a successful respective move.
+     * No move is accepted once the game is over.
      *
      * @param  player The player taking the turn.
      *
      * @return       True if the turn was successful, false otherwise.
      */
     public boolean takeTurn(Player player) {
+        if (isGameOver()) {
+            return false;
+        }
         int[] move;
         if (player == humanPlayer){
             move = humanPlayer.takeTurn(board, selectedColumn);
             if (!isValidMove(move)){
                 return false;
             }
-            gameController.createCircleAtNode(player, move[0], selectedColumn);
+            gameView.createCircleAtNode(player, move[0], selectedColumn);
             player.incrementTotalTokens();
-            board[move[0] - 1][move[1]] = 1;
+            placeToken(move[0] - 1, move[1], 1);
             return true;
         } else if (player == computerPlayer){
-            move = computerPlayer.takeTurn(board);
-            gameController.createCircleAtNode(player, move[0], move[1]);
-            player.incrementTotalTokens();
-            board[move[0] - 1][move[1]] = 2;
-            return true;
+            return applyComputerMove(computerPlayer.takeTurn(board));
         }
         return false;
     }
 
+    /**
+     * Asks the computer player for its move without blocking.
+     * The move is searched on a snapshot of the board and must be applied with applyComputerMove.
+     *
+     * @return  a future completed with the computer's move
+     */
+    public CompletableFuture<int[]> requestComputerTurn() {
+        return computerPlayer.requestTurn(board);
+    }
+
+    /**
+     * Lets the computer player search its answers while the human is thinking.
+     */
+    public void ponder() {
+        computerPlayer.ponder(board);
+    }
+
+    /**
+     * Plays a move found by the computer player.
+     *
+     * @param  move  an array representing the move, as returned by the computer player
+     *
+     * @return       True if the move was played, false if it was not valid or the game is over.
+     */
+    public boolean applyComputerMove(int[] move) {
+        if (isGameOver() || !isValidMove(move) || board[move[0] - 1][move[1]] != 0) {
+            return false;
+        }
+        gameView.createCircleAtNode(computerPlayer, move[0], move[1]);
+        computerPlayer.incrementTotalTokens();
+        placeToken(move[0] - 1, move[1], 2);
+        return true;
+    }
+
+    /**
+     * Finds the move in the first column that is not full, for when the computer player found none.
+     *
+     * @return  an array representing the move, in the form applyComputerMove takes, or {-1, -1} if the board is full
+     */
+    public int[] firstPlayableMove() {
+        for (int column = 0; column < board[0].length; column++) {
+            for (int row = board.length - 1; row >= 0; row--) {
+                if (board[row][column] == 0) {
+                    return new int[]{row + 1, column};
+                }
+            }
+        }
+        return new int[]{-1, -1};
+    }
+
+    /**
+     * Places a token on the board and remembers it as the last move, together with the time
+     * since the move before it for the game record. The result of the game is decided from the new token.
+     *
+     * @param  row     the array row of the token
+     * @param  column  the column of the token
+     * @param  value   the player value (1 or 2)
+     */
+    private void placeToken(int row, int column, int value) {
+        board[row][column] = value;
+        lastMoveRow = row;
+        lastMoveColumn = column;
+        if (moveCount == 0) {
+            firstPlayer = value;
+        }
+        long now = System.nanoTime();
+        moves[moveCount] = (byte) column;
+        moveMillis[moveCount] = (int) ((now - lastMoveNanos) / 1_000_000);
+        lastMoveNanos = now;
+        moveCount++;
+        result = checkGameWin();
+    }
+
+    /**
+     * Checks whether the game has ended with a win or a draw, after which no more moves are accepted.
+     *
+     * @return  true if the game has a result, false otherwise
+     */
+    public boolean isGameOver() {
+        return result != -1;
+    }
+
     /**
      * Checks if the given move is valid.
      * Checks if the row index is -1 (i.e. the column is full).
@@ -77,6 +186,8 @@ public class Connect4Game {
 
     /**
      * Determines if the game has been won by a player or if it is a draw.
+     * Only a line through the last token placed can have been completed by the last move,
+     * so only the four lines through that token are checked, and a draw is simply a full board.
      *
      * @return  An integer representing the result of the game:
      *          - 1 if player 1 has won
@@ -85,17 +196,14 @@ public class Connect4Game {
      *          - -1 if no win conditions have been met
      */
     public int checkGameWin() {
-        int checkColumnsResult = checkColumns(board);
-        int checkRowsResult = checkRows(board);
-        int checkDiagonalsResult = checkDiagonals(board);
-
-        //If player 1 has met any of the win conditions
-        if (checkColumnsResult == 1 || checkRowsResult == 1 || checkDiagonalsResult == 1){
-            return (1);
+        if (moveCount == 0) {
+            return -1;
         }
-        //If player 2 has met any of the win conditions
-        else if (checkColumnsResult == 2 || checkRowsResult == 2 || checkDiagonalsResult == 2){
-            return (2);
+        int player = board[lastMoveRow][lastMoveColumn];
+        //Rows, columns, then both diagonals through the last token
+        if (checkLineThroughLastMove(0, 1) || checkLineThroughLastMove(1, 0)
+                || checkLineThroughLastMove(1, 1) || checkLineThroughLastMove(1, -1)){
+            return player;
         }
         //If no win conditions have been met, check for a draw
         else if (checkDraw()){
@@ -105,25 +213,69 @@ public class Connect4Game {
     }
 
     /**
-     * Checks each array index, if a 0 is found then the board is not full,
-     * so a draw has not been reached
+     * Counts the last player's tokens on both sides of the last move along one direction.
+     * If there are four in a row, the four cells ending furthest along the negative
+     * direction are stored as the winning cells.
+     *
+     * @param  rowStep     the row step of the direction
+     * @param  columnStep  the column step of the direction
      *
-     * @return true if there are no empty slots (i.e. slots containing 0) in the array,
-     * return false
+     * @return             true if the line holds four-in-a-row, false otherwise
      */
-    public boolean checkDraw(){
-        int[][] gameArray = getBoard();
-        for (int i = 0; i < noOfRows; i++){
-            for (int j = 0; j < noOfColumns; j++){
-                if (gameArray[i][j] == 0){
-                    return false;
-                }
-            }
+    private boolean checkLineThroughLastMove(int rowStep, int columnStep) {
+        int player = board[lastMoveRow][lastMoveColumn];
+        int backward = 0;
+        while (backward < 3 && isPlayerAt(lastMoveRow - (backward + 1) * rowStep, lastMoveColumn - (backward + 1) * columnStep, player)) {
+            backward++;
+        }
+        int forward = 0;
+        while (backward + forward < 3 && isPlayerAt(lastMoveRow + (forward + 1) * rowStep, lastMoveColumn + (forward + 1) * columnStep, player)) {
+            forward++;
+        }
+        if (backward + forward < 3) {
+            return false;
+        }
+        for (int offset = 0; offset < 4; offset++) {
+            winningCells[offset][0] = lastMoveRow + (offset - backward) * rowStep;
+            winningCells[offset][1] = lastMoveColumn + (offset - backward) * columnStep;
         }
-        // Return true if there are no empty slots left
+        hasWinningCells = true;
         return true;
     }
 
+    private boolean isPlayerAt(int row, int column, int player) {
+        return row >= 0 && row < noOfRows && column >= 0 && column < noOfColumns && board[row][column] == player;
+    }
+
+    /**
+     * Returns the four cells of the winning line found by the last call to checkGameWin.
+     *
+     * @return  four {row, column} pairs in array coordinates (row 0 at the top),
+     *          or null if no winning line has been found
+     */
+    public int[][] getWinningCells() {
+        return hasWinningCells ? winningCells : null;
+    }
+
+    /**
+     * Returns the number of tokens placed so far.
+     *
+     * @return  the number of moves made in the game
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Checks whether every slot of the board has been filled, so a draw has been reached
+     * if nobody has won.
+     *
+     * @return true if there are no empty slots left, false otherwise
+     */
+    public boolean checkDraw(){
+        return moveCount == noOfRows * noOfColumns;
+    }
+
     /**
      * Check if there are any winning rows.
      *
@@ -131,19 +283,12 @@ public class Connect4Game {
      * If neither has won return 0.
      */
     public static int checkRows(int[][] board){
-        for (int rowNo = 0; rowNo < noOfRows ; rowNo++){
-            for (int columnNo = 0; columnNo < noOfColumns - 3; columnNo++){
-                Set<Integer> checkRowSet = new HashSet<>();
-                for (int offset = 0; offset < 4; offset++){
-                    checkRowSet.add(board[rowNo][columnNo + offset]);
-                }
-                if (checkRowSet.size() == 1){
-                    if (checkRowSet.contains(1)){
-                        return 1;
-                    }
-                    else if (checkRowSet.contains(2)){
-                        return 2;
-                    }
+        for (int rowNo = 0; rowNo < board.length ; rowNo++){
+            for (int columnNo = 0; columnNo < board[rowNo].length - 3; columnNo++){
+                int owner = lineOwner(board[rowNo][columnNo], board[rowNo][columnNo + 1],
+                        board[rowNo][columnNo + 2], board[rowNo][columnNo + 3]);
+                if (owner != 0){
+                    return owner;
                 }
             }
         }
@@ -157,19 +302,12 @@ public class Connect4Game {
      * If neither has won return 0.
      */
     public static int checkColumns(int[][] board) {
-        for (int columnNo = 0; columnNo < noOfColumns; columnNo++){
-            for (int rowNo = noOfRows - 1; rowNo >= noOfRows/2 ; rowNo--){
-                Set<Integer> checkColumnSet = new HashSet<>();
-                for (int offset = 0; offset < 4; offset++){
-                    checkColumnSet.add(board[rowNo - offset][columnNo]);
-                }
-                if (checkColumnSet.size() == 1){
-                    if (checkColumnSet.contains(1)){
-                        return 1;
-                    }
-                    else if (checkColumnSet.contains(2)){
-                        return 2;
-                    }
+        for (int columnNo = 0; columnNo < board[0].length; columnNo++){
+            for (int rowNo = board.length - 1; rowNo >= 3 ; rowNo--){
+                int owner = lineOwner(board[rowNo][columnNo], board[rowNo - 1][columnNo],
+                        board[rowNo - 2][columnNo], board[rowNo - 3][columnNo]);
+                if (owner != 0){
+                    return owner;
                 }
             }
         }
@@ -194,10 +332,6 @@ public class Connect4Game {
         return 0;
     }
 
-    private int[][] getBoard() {
-        return board;
-    }
-
     /**
      * Checks for winning diagonals in the top left to bottom right direction,
      *
@@ -207,19 +341,12 @@ public class Connect4Game {
      * Return 0 if neither has a winning diagonal
      */
     private static int checkTopLeftToBottomRight(int[][] gameArray) {
-        for (int columnNo = 0; columnNo <= noOfColumns - 4; columnNo++){
-            for (int rowNo = 0; rowNo <= noOfRows - 4; rowNo++){
-                Set<Integer> checkCurrentDiagonalSet = new HashSet<>();
-                for (int offset = 0; offset < 4; offset++) {
-                    checkCurrentDiagonalSet.add(gameArray[rowNo + offset][columnNo + offset]);
-                }
-                if (checkCurrentDiagonalSet.size() == 1){
-                    if (checkCurrentDiagonalSet.contains(1)){
-                        return 1;
-                    }
-                    else if (checkCurrentDiagonalSet.contains(2)){
-                        return 2;
-                    }
+        for (int columnNo = 0; columnNo <= gameArray[0].length - 4; columnNo++){
+            for (int rowNo = 0; rowNo <= gameArray.length - 4; rowNo++){
+                int owner = lineOwner(gameArray[rowNo][columnNo], gameArray[rowNo + 1][columnNo + 1],
+                        gameArray[rowNo + 2][columnNo + 2], gameArray[rowNo + 3][columnNo + 3]);
+                if (owner != 0){
+                    return owner;
                 }
             }
         }
@@ -235,19 +362,12 @@ public class Connect4Game {
      * 0 if neither player has a winning diagonal
      */
     private static int checkTopRightToBottomLeft(int[][] gameArray) {
-        for (int columnNo = noOfColumns - 1; columnNo >= 3; columnNo--){
-            for (int rowNo = 0; rowNo <= noOfRows - 4; rowNo++){
-                Set<Integer> checkCurrentDiagonalSet = new HashSet<>();
-                for (int offset = 0; offset < 4; offset++) {
-                    checkCurrentDiagonalSet.add(gameArray[rowNo + offset][columnNo - offset]);
-                }
-                if (checkCurrentDiagonalSet.size() == 1){
-                    if (checkCurrentDiagonalSet.contains(1)){
-                        return 1;
-                    }
-                    else if (checkCurrentDiagonalSet.contains(2)){
-                        return 2;
-                    }
+        for (int columnNo = gameArray[0].length - 1; columnNo >= 3; columnNo--){
+            for (int rowNo = 0; rowNo <= gameArray.length - 4; rowNo++){
+                int owner = lineOwner(gameArray[rowNo][columnNo], gameArray[rowNo + 1][columnNo - 1],
+                        gameArray[rowNo + 2][columnNo - 2], gameArray[rowNo + 3][columnNo - 3]);
+                if (owner != 0){
+                    return owner;
                 }
             }
         }
@@ -255,21 +375,38 @@ public class Connect4Game {
     }
 
     /**
-     * Returns the number of columns
+     * Checks whether four cells all hold the same player's token.
+     *
+     * @param a the value of the first cell
+     * @param b the value of the second cell
+     * @param c the value of the third cell
+     * @param d the value of the fourth cell
+     *
+     * @return the player owning all four cells, or 0 if they are not all the same player's
+     */
+    private static int lineOwner(int a, int b, int c, int d) {
+        return (a != 0 && a == b && a == c && a == d) ? a : 0;
+    }
+
+    /**
+     * Returns the moves played so far as a record for the game journal.
+     *
+     * @param  result  the result as returned by checkGameWin, -1 if the game is not finished
      *
-     * @return the number of columns
+     * @return         the game record
      */
-    public static int getNoOfColumns() {
-        return noOfColumns;
+    public GameRecord toRecord(int result) {
+        return new GameRecord(boardSpec, firstPlayer, startMillis, Arrays.copyOf(moves, moveCount),
+                result == -1 ? GameRecord.UNFINISHED : result, Arrays.copyOf(moveMillis, moveCount));
     }
 
     /**
-     * Returns the number of rows
+     * Returns the size of the board of this game.
      *
-     * @return the number of rows
+     * @return the board spec
      */
-    public static int getNoOfRows() {
-        return noOfRows;
+    public BoardSpec getBoardSpec() {
+        return boardSpec;
     }
 
     /**
@@ -0,0 +1,59 @@
+package com.connect4.connect4javafx;
+
+/**
+ * The Elo difference implied by a match score, with a 95% confidence interval.
+ * The interval comes from the standard error of the per-game score, so draws narrow it.
+ *
+ * @param elo    the estimated Elo difference, positive if the first engine is stronger
+ * @param lower  the lower bound of the 95% confidence interval
+ * @param upper  the upper bound of the 95% confidence interval
+ */
+public record EloEstimate(double elo, double lower, double upper) {
+    private static final double Z_95 = 1.959964;
+
+    /**
+     * Estimates the Elo difference from a match result.
+     *
+     * @param  wins    the number of games the first engine won
+     * @param  draws   the number of drawn games
+     * @param  losses  the number of games the first engine lost
+     *
+     * @return         the estimate, infinite if one engine won every game
+     */
+    public static EloEstimate of(long wins, long draws, long losses) {
+        long games = wins + draws + losses;
+        if (games == 0) {
+            return new EloEstimate(0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        double score = (wins + 0.5 * draws) / games;
+        double variance = (wins * square(1 - score) + draws * square(0.5 - score) + losses * square(score)) / games;
+        double margin = Z_95 * Math.sqrt(variance / games);
+        return new EloEstimate(eloOf(score), eloOf(score - margin), eloOf(score + margin));
+    }
+
+    /**
+     * Converts an expected score into an Elo difference.
+     *
+     * @param  score  the expected score, between 0 and 1
+     *
+     * @return        the Elo difference
+     */
+    private static double eloOf(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%+.1f Elo (95%% CI %+.1f to %+.1f)", elo, lower, upper);
+    }
+}
@@ -0,0 +1,293 @@
+package com.connect4.connect4javafx;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Perfect-play solver for positions with few empty cells.
+ * Uses null-window negamax: the score of a position is narrowed down by repeated searches
+ * with a window of width one. Scores encode the distance to the end of the game: a win with
+ * the player's k-th next stone scores (cells + 1 - stones) / 2 - (k - 1), a loss scores the
+ * negative of the opponent's win, and a draw scores 0. Only moves that do not hand the
+ * opponent an immediate win are searched, ordered by how many winning cells they create.
+ * Upper and lower bounds are cached in a transposition table of their own, shared by a position
+ * and its mirror image.
+ */
+public class EndgameSolver {
+    private static final int DEFAULT_TABLE_SIZE_MB = 16;
+    private static final int NODES_BETWEEN_TIME_CHECKS = 4096;
+    private final TranspositionTable transpositionTable;
+    private int[][] moveLists = new int[0][];
+    private int[][] moveScores = new int[0][];
+    private int[] staticOrder = new int[0];
+    private int cells;
+    private int rootStoneCount;
+    private long nodes;
+    private long deadline;
+    private volatile AtomicBoolean stopToken = new AtomicBoolean();
+    private boolean aborted;
+
+    public EndgameSolver() {
+        this(DEFAULT_TABLE_SIZE_MB);
+    }
+
+    public EndgameSolver(int tableSizeInMegabytes) {
+        this.transpositionTable = new TranspositionTable(tableSizeInMegabytes);
+    }
+
+    /**
+     * Solves a position.
+     *
+     * @param  position  the position to solve, left unchanged on return
+     * @param  deadline  the System.nanoTime() after which the solver gives up
+     *
+     * @return           the proven result, or null if the deadline passed or stop() was called first
+     */
+    public SolveResult solve(BitBoard position, long deadline) {
+        this.deadline = deadline;
+        aborted = false;
+        nodes = 0;
+        prepare(position);
+        transpositionTable.newSearch();
+
+        int stones = position.getStoneCount();
+        for (int column : staticOrder) {
+            if (position.canPlay(column) && position.isWinningMove(column)) {
+                return new SolveResult(SolveResult.Outcome.WIN, 1, column);
+            }
+        }
+        if (position.isFull()) {
+            return null;
+        }
+
+        int score = solveScore(position);
+        if (aborted) {
+            return null;
+        }
+
+        // Find a move reaching the score: the child's score must be at most -score
+        int move = -1;
+        for (int column : staticOrder) {
+            if (!position.canPlay(column)) {
+                continue;
+            }
+            position.play(column);
+            int childScore;
+            if (position.isFull()) {
+                childScore = 0;
+            } else if (canWinNext(position)) {
+                childScore = (cells + 1 - position.getStoneCount()) / 2;
+            } else {
+                childScore = negamax(position, -score, -score + 1);
+            }
+            position.undo();
+            if (aborted) {
+                return null;
+            }
+            if (childScore <= -score) {
+                move = column;
+                break;
+            }
+        }
+        return toResult(score, stones, move);
+    }
+
+    /**
+     * Narrows down the score of a position with null-window searches.
+     * The player to move must not be able to win immediately.
+     *
+     * @param  position  the position to solve
+     *
+     * @return           the exact score of the position
+     */
+    private int solveScore(BitBoard position) {
+        int stones = position.getStoneCount();
+        int min = -(cells - stones) / 2;
+        int max = (cells + 1 - stones) / 2;
+        while (min < max && !aborted) {
+            int middle = min + (max - min) / 2;
+            // Probe close to 0 first, most positions are decided by small margins
+            if (middle <= 0 && min / 2 < middle) {
+                middle = min / 2;
+            } else if (middle >= 0 && max / 2 > middle) {
+                middle = max / 2;
+            }
+            int result = negamax(position, middle, middle + 1);
+            if (result <= middle) {
+                max = result;
+            } else {
+                min = result;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Negamax with alpha-beta pruning over the non-losing moves.
+     * The player to move must not be able to win immediately.
+     *
+     * @param  position  the position to search
+     * @param  alpha     the lower bound of the window
+     * @param  beta      the upper bound of the window
+     *
+     * @return           the score, exact if inside the window, otherwise a bound beyond it
+     */
+    private int negamax(BitBoard position, int alpha, int beta) {
+        nodes++;
+        if ((nodes & (NODES_BETWEEN_TIME_CHECKS - 1)) == 0
+                && (stopToken.get() || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        int stones = position.getStoneCount();
+        long next = position.nonLosingMoves();
+        if (next == 0) {
+            return -(cells - stones) / 2;
+        }
+        if (stones >= cells - 2) {
+            return 0;
+        }
+
+        // The opponent cannot win on their next move, so the score is at least this
+        int min = -(cells - 2 - stones) / 2;
+        if (alpha < min) {
+            alpha = min;
+            if (alpha >= beta) {
+                return alpha;
+            }
+        }
+        // This player cannot win on this move, so the score is at most this
+        int max = (cells - 1 - stones) / 2;
+        // Mirrored positions have the same score, so they share an entry
+        long key = position.getCanonicalHash();
+        long entry = transpositionTable.probe(key);
+        if (entry != 0) {
+            int bound = TranspositionTable.boundOf(entry);
+            int cached = TranspositionTable.scoreOf(entry);
+            if (bound == TranspositionTable.UPPER_BOUND) {
+                max = Math.min(max, cached);
+            } else if (bound == TranspositionTable.LOWER_BOUND && cached > alpha) {
+                alpha = cached;
+                if (alpha >= beta) {
+                    return alpha;
+                }
+            }
+        }
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) {
+                return beta;
+            }
+        }
+
+        int ply = stones - rootStoneCount;
+        int moveCount = orderMoves(position, next, ply);
+        for (int index = 0; index < moveCount; index++) {
+            position.play(moveLists[ply][index]);
+            int score = -negamax(position, -beta, -alpha);
+            position.undo();
+            if (aborted) {
+                return 0;
+            }
+            if (score >= beta) {
+                transpositionTable.store(key, score, 0, TranspositionTable.LOWER_BOUND, -1);
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        transpositionTable.store(key, alpha, 0, TranspositionTable.UPPER_BOUND, -1);
+        return alpha;
+    }
+
+    /**
+     * Sorts the given moves by the number of winning cells they leave the player with,
+     * keeping the centre-out order for ties.
+     *
+     * @param  position  the position to order moves for
+     * @param  moves     the mask of moves to order
+     * @param  ply       the distance from the root, selecting the move list
+     *
+     * @return           the number of moves
+     */
+    private int orderMoves(BitBoard position, long moves, int ply) {
+        int[] list = moveLists[ply];
+        int[] scores = moveScores[ply];
+        long stones = position.getPlayerMask(position.getPlayerToMove());
+        int count = 0;
+        for (int column : staticOrder) {
+            long move = moves & position.columnMask(column);
+            if (move == 0) {
+                continue;
+            }
+            int score = Long.bitCount(position.winningCells(stones | move) & ~move);
+            int index = count++;
+            while (index > 0 && scores[index - 1] < score) {
+                list[index] = list[index - 1];
+                scores[index] = scores[index - 1];
+                index--;
+            }
+            list[index] = column;
+            scores[index] = score;
+        }
+        return count;
+    }
+
+    private boolean canWinNext(BitBoard position) {
+        return (position.winningCells(position.getPlayerMask(position.getPlayerToMove())) & position.legalMoves()) != 0;
+    }
+
+    private SolveResult toResult(int score, int stones, int move) {
+        if (score > 0) {
+            int stonesToWin = (cells + 1 - stones) / 2 - score + 1;
+            return new SolveResult(SolveResult.Outcome.WIN, 2 * stonesToWin - 1, move);
+        } else if (score < 0) {
+            int opponentStonesToWin = (cells - stones) / 2 + score + 1;
+            return new SolveResult(SolveResult.Outcome.LOSS, 2 * opponentStonesToWin, move);
+        }
+        return new SolveResult(SolveResult.Outcome.DRAW, cells - stones, move);
+    }
+
+    private void prepare(BitBoard position) {
+        cells = position.getColumns() * position.getRows();
+        rootStoneCount = position.getStoneCount();
+        int columns = position.getColumns();
+        if (staticOrder.length != columns || moveLists.length != cells + 1) {
+            staticOrder = new int[columns];
+            for (int i = 0; i < columns; i++) {
+                staticOrder[i] = columns / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+            }
+            moveLists = new int[cells + 1][columns];
+            moveScores = new int[cells + 1][columns];
+        }
+    }
+
+    /**
+     * Asks a running solve to give up as soon as possible, by setting the current stop token.
+     * The solves started afterwards give up at once as well, until a new token is set.
+     */
+    public void stop() {
+        stopToken.set(true);
+    }
+
+    /**
+     * Sets the token that stops the solves started from now on, even if it was set before they began.
+     *
+     * @param  stopToken  the stop token of the next solves
+     */
+    public void setStopToken(AtomicBoolean stopToken) {
+        this.stopToken = stopToken;
+    }
+
+    /**
+     * Returns the number of nodes visited by the last solve.
+     *
+     * @return  the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,129 @@
+package com.connect4.connect4javafx;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * The settings of one engine in a self-play match, parsed from a spec such as
+ * "depth=8,time=100,eval=window,hash=16,extend=on,reduce=off". Keys that are left out keep their default.
+ *
+ * @param maxDepth            the deepest iteration to search, in plies
+ * @param moveTimeMillis      the time budget per move, or 0 for no time limit
+ * @param evaluator           the name of the evaluator, see evaluatorFactory
+ * @param tableSizeMegabytes  the size of the transposition table
+ * @param threatExtensions    whether moves that create a threat are searched deeper
+ * @param lateMoveReductions  whether late quiet moves are searched shallower first
+ */
+public record EngineConfig(int maxDepth, long moveTimeMillis, String evaluator, int tableSizeMegabytes,
+                           boolean threatExtensions, boolean lateMoveReductions) {
+    private static final int DEFAULT_DEPTH = 8;
+    private static final String DEFAULT_EVALUATOR = "threat";
+    private static final int DEFAULT_TABLE_SIZE_MB = 16;
+    private static final String THREAT_WEIGHTS_PREFIX = "threat:";
+
+    /**
+     * Parses an engine spec.
+     *
+     * @param  spec  comma-separated key=value pairs, the keys being depth, time, eval, hash,
+     *               extend and reduce, the last two set to on or off
+     *
+     * @return       the engine settings
+     */
+    public static EngineConfig parse(String spec) {
+        int maxDepth = spec.contains("time=") ? SearchLimits.MAX_DEPTH : DEFAULT_DEPTH;
+        long moveTimeMillis = 0;
+        String evaluator = DEFAULT_EVALUATOR;
+        int tableSizeMegabytes = DEFAULT_TABLE_SIZE_MB;
+        boolean threatExtensions = false;
+        boolean lateMoveReductions = false;
+        for (String setting : spec.split(",")) {
+            if (setting.isBlank()) {
+                continue;
+            }
+            String[] keyValue = setting.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, was " + setting);
+            }
+            String value = keyValue[1].trim();
+            switch (keyValue[0].trim()) {
+                case "depth" -> maxDepth = Integer.parseInt(value);
+                case "time" -> moveTimeMillis = Long.parseLong(value);
+                case "eval" -> evaluator = value;
+                case "hash" -> tableSizeMegabytes = Integer.parseInt(value);
+                case "extend" -> threatExtensions = parseSwitch(value);
+                case "reduce" -> lateMoveReductions = parseSwitch(value);
+                default -> throw new IllegalArgumentException("Unknown engine setting " + keyValue[0]);
+            }
+        }
+        evaluatorFactory(evaluator);
+        return new EngineConfig(maxDepth, moveTimeMillis, evaluator, tableSizeMegabytes,
+                threatExtensions, lateMoveReductions);
+    }
+
+    private static boolean parseSwitch(String value) {
+        return switch (value) {
+            case "on" -> true;
+            case "off" -> false;
+            default -> throw new IllegalArgumentException("Expected on or off, was " + value);
+        };
+    }
+
+    /**
+     * Returns the factory for an evaluator name.
+     *
+     * @param  name  "window" for the WindowEvaluator, "threat" for the ThreatEvaluator with its
+     *               default weights, or "threat:file" for the ThreatEvaluator with the weights
+     *               of a properties file
+     *
+     * @return       a factory creating new evaluators of that kind
+     */
+    public static Supplier<Evaluator> evaluatorFactory(String name) {
+        if (name.startsWith(THREAT_WEIGHTS_PREFIX)) {
+            Path file = Path.of(name.substring(THREAT_WEIGHTS_PREFIX.length()));
+            try {
+                ThreatEvaluator.Weights weights = ThreatEvaluator.Weights.load(file);
+                return () -> new ThreatEvaluator(weights);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read evaluator weights from " + file, e);
+            }
+        }
+        return switch (name) {
+            case "window" -> WindowEvaluator::new;
+            case "threat" -> ThreatEvaluator::new;
+            default -> throw new IllegalArgumentException("Unknown evaluator " + name);
+        };
+    }
+
+    /**
+     * Returns the search limits of these settings.
+     *
+     * @return  the search limits
+     */
+    public SearchLimits limits() {
+        return new SearchLimits(maxDepth, moveTimeMillis);
+    }
+
+    /**
+     * Creates an engine with these settings.
+     *
+     * @return  a new minimax agent
+     */
+    public MinimaxAgent createAgent() {
+        MinimaxAgent agent = new MinimaxAgent();
+        if (tableSizeMegabytes != DEFAULT_TABLE_SIZE_MB) {
+            agent.setTranspositionTableSize(tableSizeMegabytes);
+        }
+        agent.setEvaluatorFactory(evaluatorFactory(evaluator));
+        agent.setSearchLimits(limits());
+        agent.setThreatExtensions(threatExtensions);
+        agent.setLateMoveReductions(lateMoveReductions);
+        return agent;
+    }
+
+    @Override
+    public String toString() {
+        return "depth=" + maxDepth + ",time=" + moveTimeMillis + ",eval=" + evaluator + ",hash=" + tableSizeMegabytes
+                + ",extend=" + (threatExtensions ? "on" : "off") + ",reduce=" + (lateMoveReductions ? "on" : "off");
+    }
+}
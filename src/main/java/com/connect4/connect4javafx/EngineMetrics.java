@@ -0,0 +1,180 @@
+package com.connect4.connect4javafx;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Collects the reports of every search in the process and publishes them as a JMX MBean,
+ * registered on first use as com.connect4.connect4javafx:type=EngineMetrics. Starting the platform
+ * MBean server takes a few hundred milliseconds, so registration runs on a background thread
+ * and never delays the first search.
+ * It shows the totals since start-up and the statistics of the last search, so the engine
+ * can be watched from JConsole or any JMX client without attaching a profiler.
+ */
+public class EngineMetrics implements EngineMetricsMXBean {
+    private static final String OBJECT_NAME = "com.connect4.connect4javafx:type=EngineMetrics";
+    private static final EngineMetrics INSTANCE = register(new EngineMetrics());
+    private long searches;
+    private long totalNodes;
+    private long totalSearchNanos;
+    private long bookMoves;
+    private long solverMoves;
+    private long ponderHits;
+    private long ponderMisses;
+    private long ponderTimeSavedMillis;
+    private SearchReport lastReport;
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * Returns the metrics shared by all agents.
+     *
+     * @return  the engine metrics
+     */
+    public static EngineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private static EngineMetrics register(EngineMetrics metrics) {
+        Thread registration = new Thread(() -> {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(metrics, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException e) {
+                // The metrics are still collected, they are just not visible over JMX
+                System.err.println("Error registering engine metrics: " + e.getMessage());
+            }
+        }, "engine-metrics-registration");
+        registration.setDaemon(true);
+        registration.start();
+        return metrics;
+    }
+
+    /**
+     * Adds the report of a finished search.
+     *
+     * @param  report  the search report
+     */
+    public synchronized void record(SearchReport report) {
+        searches++;
+        totalNodes += report.nodes();
+        totalSearchNanos += report.elapsedNanos();
+        if (report.source() == SearchReport.Source.BOOK) {
+            bookMoves++;
+        } else if (report.source() == SearchReport.Source.SOLVER) {
+            solverMoves++;
+        }
+        lastReport = report;
+    }
+
+    /**
+     * Adds a requested move that had already been found while pondering.
+     *
+     * @param  savedMillis  the search time the ponder hit saved
+     */
+    public synchronized void recordPonderHit(long savedMillis) {
+        ponderHits++;
+        ponderTimeSavedMillis += savedMillis;
+    }
+
+    /**
+     * Adds a requested move after pondering that still had to be searched.
+     */
+    public synchronized void recordPonderMiss() {
+        ponderMisses++;
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getTotalNodes() {
+        return totalNodes;
+    }
+
+    @Override
+    public synchronized long getTotalSearchMillis() {
+        return totalSearchNanos / 1_000_000;
+    }
+
+    @Override
+    public synchronized double getAverageNodesPerSecond() {
+        return totalSearchNanos == 0 ? 0 : totalNodes * 1e9 / totalSearchNanos;
+    }
+
+    @Override
+    public synchronized long getBookMoves() {
+        return bookMoves;
+    }
+
+    @Override
+    public synchronized long getSolverMoves() {
+        return solverMoves;
+    }
+
+    @Override
+    public synchronized long getPonderHits() {
+        return ponderHits;
+    }
+
+    @Override
+    public synchronized long getPonderMisses() {
+        return ponderMisses;
+    }
+
+    @Override
+    public synchronized double getPonderHitRate() {
+        long requests = ponderHits + ponderMisses;
+        return requests == 0 ? 0 : (double) ponderHits / requests;
+    }
+
+    @Override
+    public synchronized long getPonderTimeSavedMillis() {
+        return ponderTimeSavedMillis;
+    }
+
+    @Override
+    public synchronized int getLastDepth() {
+        return lastReport == null ? 0 : lastReport.depth();
+    }
+
+    @Override
+    public synchronized long getLastNodes() {
+        return lastReport == null ? 0 : lastReport.nodes();
+    }
+
+    @Override
+    public synchronized long getLastSearchMillis() {
+        return lastReport == null ? 0 : lastReport.elapsedNanos() / 1_000_000;
+    }
+
+    @Override
+    public synchronized double getLastNodesPerSecond() {
+        return lastReport == null ? 0 : lastReport.nodesPerSecond();
+    }
+
+    @Override
+    public synchronized double getLastFirstMoveCutoffRate() {
+        return lastReport == null ? 0 : lastReport.firstMoveCutoffRate();
+    }
+
+    @Override
+    public synchronized long getLastTableHits() {
+        return lastReport == null ? 0 : lastReport.tableHits();
+    }
+
+    @Override
+    public synchronized int getLastMove() {
+        return lastReport == null ? -1 : lastReport.move();
+    }
+
+    @Override
+    public synchronized int getLastScore() {
+        return lastReport == null ? 0 : lastReport.score();
+    }
+}
@@ -0,0 +1,42 @@
+package com.connect4.connect4javafx;
+
+/**
+ * The engine statistics published over JMX, see EngineMetrics.
+ */
+public interface EngineMetricsMXBean {
+    long getSearches();
+
+    long getTotalNodes();
+
+    long getTotalSearchMillis();
+
+    double getAverageNodesPerSecond();
+
+    long getBookMoves();
+
+    long getSolverMoves();
+
+    long getPonderHits();
+
+    long getPonderMisses();
+
+    double getPonderHitRate();
+
+    long getPonderTimeSavedMillis();
+
+    int getLastDepth();
+
+    long getLastNodes();
+
+    long getLastSearchMillis();
+
+    double getLastNodesPerSecond();
+
+    double getLastFirstMoveCutoffRate();
+
+    long getLastTableHits();
+
+    int getLastMove();
+
+    int getLastScore();
+}
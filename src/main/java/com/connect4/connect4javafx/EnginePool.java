@@ -0,0 +1,104 @@
+package com.connect4.connect4javafx;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * A fixed set of engine threads shared by every game of a GameServer. Each worker owns its
+ * own MinimaxAgent, since agents are not thread-safe, and keeps its transposition table between
+ * requests, so positions that come up in many games are found in the table.
+ * Requests wait in a bounded first-in first-out queue. Every game has at most one request
+ * waiting at a time, so the queue serves games strictly in turn, and when it is full trySubmit
+ * refuses the request and the caller has to hold it back until there is room again.
+ */
+public class EnginePool {
+    private final BlockingQueue<Request> queue;
+    private final Thread[] workers;
+    private final MinimaxAgent[] agents;
+    private volatile boolean running = true;
+
+    /**
+     * A position waiting to be searched.
+     *
+     * @param position  the position, owned by the request
+     * @param onMove    receives the best column on the worker thread, or -1 if the search failed
+     */
+    private record Request(BitBoard position, IntConsumer onMove) {
+    }
+
+    /**
+     * Creates the pool and starts its workers.
+     *
+     * @param  config       the settings of every worker's engine
+     * @param  threads      the number of workers
+     * @param  capacity     the number of requests that may wait for a worker
+     * @param  openingBook  the opening book shared by the workers, or null
+     */
+    public EnginePool(EngineConfig config, int threads, int capacity, OpeningBook openingBook) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        workers = new Thread[threads];
+        agents = new MinimaxAgent[threads];
+        for (int i = 0; i < threads; i++) {
+            MinimaxAgent agent = config.createAgent();
+            agent.setOpeningBook(openingBook);
+            agents[i] = agent;
+            workers[i] = new Thread(() -> work(agent), "engine-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues a position to be searched, unless the queue is full.
+     *
+     * @param  position  the position, which must not be changed afterwards
+     * @param  onMove    receives the best column on a worker thread, or -1 if the search failed
+     *
+     * @return           true if the request was queued, false if the pool is saturated
+     */
+    public boolean trySubmit(BitBoard position, IntConsumer onMove) {
+        return running && queue.offer(new Request(position, onMove));
+    }
+
+    private void work(MinimaxAgent agent) {
+        while (running) {
+            Request request;
+            try {
+                request = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            int column;
+            try {
+                column = agent.findBestColumn(request.position());
+            } catch (RuntimeException e) {
+                System.err.println("Engine search failed: " + e);
+                column = -1;
+            }
+            request.onMove().accept(column);
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting for a worker.
+     *
+     * @return  the queue length
+     */
+    public int getQueuedRequests() {
+        return queue.size();
+    }
+
+    /**
+     * Stops the workers. Requests still waiting are dropped.
+     */
+    public void shutdown() {
+        running = false;
+        for (MinimaxAgent agent : agents) {
+            agent.stop();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+}
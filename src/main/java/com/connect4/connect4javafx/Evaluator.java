@@ -0,0 +1,39 @@
+package com.connect4.connect4javafx;
+
+/**
+ * A static evaluation that is kept up to date as moves are made and taken back,
+ * so that reading the score of a leaf is cheap. One instance belongs to one search thread.
+ */
+public interface Evaluator {
+    /**
+     * Recomputes the evaluation from scratch for a position.
+     *
+     * @param  position  the position the following moves are played from
+     */
+    void reset(BitBoard position);
+
+    /**
+     * Updates the evaluation for a token placed on the board.
+     *
+     * @param  bit     the bit index of the cell, as used by BitBoard
+     * @param  player  the player who placed the token (1 or 2)
+     */
+    void play(int bit, int player);
+
+    /**
+     * Updates the evaluation for a token taken back off the board.
+     *
+     * @param  bit     the bit index of the cell, as used by BitBoard
+     * @param  player  the player who had placed the token (1 or 2)
+     */
+    void undo(int bit, int player);
+
+    /**
+     * Returns the score of the current position.
+     *
+     * @param  player  the player whose point of view the score is from (1 or 2)
+     *
+     * @return         the score, higher is better for the given player
+     */
+    int evaluate(int player);
+}
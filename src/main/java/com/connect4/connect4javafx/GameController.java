@@ -1,6 +1,7 @@
 package com.connect4.connect4javafx;
 import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -12,13 +13,19 @@ import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-public class GameController extends Application {
+public class GameController extends Application implements GameView {
     private static final int WINDOW_HEIGHT = 900;
     private static final int WINDOW_WIDTH = 800;
-    private static final int NO_OF_COLUMNS = 7;
-    private static final int NO_OF_ROWS = 6;
+    private static final BoardSpec BOARD_SPEC = BoardSpec.STANDARD;
     private static final String GAME_TITLE = "Connect-4";
+    private static final Duration COMPUTER_MOVE_DELAY = Duration.seconds(1);
+    static final String DEFAULT_JOURNAL_DIRECTORY = "game-journal";
+    private static final String JOURNAL_PROPERTY = "connect4.journal";
     public Text mainGameInvalidMoveText;
     public Button mainGamePlayAgainButton;
     public GridPane mainGameGridPane;
@@ -35,6 +42,10 @@ public class GameController extends Application {
     private ComputerPlayer computerPlayer;
     private HumanPlayer humanPlayer;
     private Connect4Game connect4Game;
+    private Circle[][] tokenCircles;
+    private boolean computerThinking;
+    private GameJournal gameJournal;
+    private boolean gameRecorded;
 
     /**
      * Starts the JavaFX application.
@@ -60,13 +71,31 @@ public class GameController extends Application {
 
     /**
      * Initialises the function by creating instances of the computer player, human player,
-     * and connect4 game. It also calls the takeComputerTurn() function to start the game.
+     * and connect4 game. It also calls the playComputerTurn() function to start the game.
      */
     private void initialise() {
         computerPlayer = new ComputerPlayer("computerPlayer", Color.RED);
         humanPlayer = new HumanPlayer("humanPlayer", Color.BLUE);
         connect4Game = new Connect4Game(computerPlayer, humanPlayer, this);
-        connect4Game.takeTurn(computerPlayer);
+        tokenCircles = new Circle[BOARD_SPEC.rows()][BOARD_SPEC.columns()];
+        gameJournal = openGameJournal();
+        playComputerTurn(Duration.ZERO);
+    }
+
+    /**
+     * Opens the journal that finished games are recorded in, the directory named by the
+     * connect4.journal system property or game-journal in the working directory.
+     *
+     * @return  the journal, or null if it cannot be opened, in which case games are not recorded
+     */
+    private static GameJournal openGameJournal() {
+        Path directory = Path.of(System.getProperty(JOURNAL_PROPERTY, DEFAULT_JOURNAL_DIRECTORY));
+        try {
+            return new GameJournal(directory);
+        } catch (IOException e) {
+            System.err.println("Error opening game journal " + directory + ": " + e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -76,6 +105,7 @@ public class GameController extends Application {
      * @param  row     the row where the circle token should be created
      * @param  column  the column where the circle token should be created
      */
+    @Override
     public void createCircleAtNode(Player player, int row, int column) {
         Circle circleToken = new Circle(50);
         circleToken.setFill(player.getPlayerColor());
@@ -84,6 +114,7 @@ public class GameController extends Application {
         // Check if mainGameGridPane is initialized before adding the circle
         if (mainGameGridPane != null) {
             mainGameGridPane.add(circleToken, column, row);
+            tokenCircles[row - 1][column] = circleToken;
         } else {
             System.err.println("mainGameGridPane is null. Unable to add circle.");
         }
@@ -91,12 +122,17 @@ public class GameController extends Application {
 
     /**
      * Cleans up the game state and initializes the game for a new round.
+     * A computer move that is still being searched is cancelled and its engine thread stopped.
      */
     public void cleanup(){
         System.out.println("Cleaning up!...");
+        computerPlayer.shutdown();
+        computerThinking = false;
+        gameRecorded = false;
         humanPlayer = new HumanPlayer("humanPlayer", Color.BLUE);
         computerPlayer = new ComputerPlayer("computerPlayer", Color.RED);
         connect4Game = new Connect4Game(computerPlayer, humanPlayer, this);
+        tokenCircles = new Circle[BOARD_SPEC.rows()][BOARD_SPEC.columns()];
         mainGameTitleText.setText(GAME_TITLE);
         CurrentTurnText.setText(("It's the computer's turn..."));
         CurrentTurnText.setVisible(true);
@@ -109,34 +145,125 @@ public class GameController extends Application {
      * Takes turns in the game.
      * The human player takes the first turn and the computer player takes the second turn.
      * If the human player makes an invalid move, they are asked to reselect a column.
-     * The program waits for a second before the computer takes its turn, to make it easier to see what move the computer is making.
+     * The computer's move is searched in the background, and is shown no sooner than a second after the human's move,
+     * to make it easier to see what move the computer is making. Column presses are ignored while the computer is thinking
+     * and once the game is over.
      * After each turn, the game is checked for a win or a draw.
      */
     private void takeTurns() {
+        if (computerThinking || connect4Game.isGameOver()) {
+            return;
+        }
         boolean turnSuccessful;
         mainGameInvalidMoveText.setVisible(false);
         turnSuccessful = connect4Game.takeTurn(humanPlayer);
         if (!turnSuccessful) {
             mainGameInvalidMoveText.setText("Invalid move. Please choose another column.");
             mainGameInvalidMoveText.setVisible(true);
-        } else {
-        checkGameWin();
-        PauseTransition pause = new PauseTransition(Duration.seconds(1));
-        pause.setOnFinished(event -> {connect4Game.takeTurn(computerPlayer);
-            checkGameWin();
-            CurrentTurnText.setText("It's your turn...");});
+        } else if (!checkGameWin()) {
+            playComputerTurn(COMPUTER_MOVE_DELAY);
+        }
+    }
+
+    /**
+     * Starts the computer's search on the engine thread and plays its move on the JavaFX Application Thread
+     * once both the search has finished and the minimum delay has passed.
+     *
+     * @param  minimumDelay  the shortest time before the computer's move is shown
+     */
+    private void playComputerTurn(Duration minimumDelay) {
+        Connect4Game game = connect4Game;
+        computerThinking = true;
         CurrentTurnText.setText("It's the computer's turn...");
+
+        CompletableFuture<Void> delay = new CompletableFuture<>();
+        PauseTransition pause = new PauseTransition(minimumDelay);
+        pause.setOnFinished(event -> delay.complete(null));
         pause.playFromStart();
+
+        game.requestComputerTurn()
+                .thenCombine(delay, (move, ignored) -> move)
+                .whenComplete((move, error) -> Platform.runLater(() -> finishComputerTurn(game, move, error)));
+    }
+
+    /**
+     * Plays the computer's move, unless the game it was searched for has been replaced by "Play again".
+     * If the search failed or its move cannot be played, the computer plays the first playable column,
+     * so the human never has to move twice in a row.
+     *
+     * @param  game   the game the move was searched for
+     * @param  move   the move found by the computer, or null if the search failed
+     * @param  error  the reason the search failed, or null
+     */
+    private void finishComputerTurn(Connect4Game game, int[] move, Throwable error) {
+        if (game != connect4Game) {
+            return;
+        }
+        computerThinking = false;
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                return;
+            }
+            System.err.println("Error finding the computer's move, picking first playable column: " + cause);
+            move = game.firstPlayableMove();
+        }
+        if (!game.applyComputerMove(move) && !game.isGameOver()) {
+            game.applyComputerMove(game.firstPlayableMove());
+        }
+        if (!checkGameWin()) {
+            CurrentTurnText.setText("It's your turn...");
+            game.ponder();
         }
     }
 
     /**
      * Checks if the game has been won (gameValue != -1), if so, shows the end of the game.
+     *
+     * @return  True if the game has ended, false otherwise.
      */
-    private void checkGameWin(){
+    private boolean checkGameWin(){
         int gameValue = connect4Game.checkGameWin();
         if (gameValue != -1) {
+            highlightWinningCells();
             showEndOfGame(gameValue);
+            recordGame(gameValue);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Appends the finished game to the game journal, if there is one. Each game is appended only once.
+     *
+     * @param  gameResult  the result of the game (0 for draw, 1 for human player win, 2 for computer player win)
+     */
+    private void recordGame(int gameResult) {
+        if (gameJournal == null || gameRecorded) {
+            return;
+        }
+        gameRecorded = true;
+        try {
+            gameJournal.append(connect4Game.toRecord(gameResult));
+        } catch (IOException e) {
+            System.err.println("Error recording game: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Outlines the four tokens of the winning line, if there is one.
+     */
+    private void highlightWinningCells() {
+        int[][] winningCells = connect4Game.getWinningCells();
+        if (winningCells == null) {
+            return;
+        }
+        for (int[] cell : winningCells) {
+            Circle circleToken = tokenCircles[cell[0]][cell[1]];
+            if (circleToken != null) {
+                circleToken.setStroke(Color.GOLD);
+                circleToken.setStrokeWidth(6);
+            }
         }
     }
 
@@ -237,21 +364,12 @@ public class GameController extends Application {
     }
 
     /**
-     * Returns the number of columns.
-     *
-     * @return the number of columns
-     */
-    public static int getNoOfColumns() {
-        return NO_OF_COLUMNS;
-    }
-
-    /**
-     * Returns the number of rows.
+     * Returns the size of the board shown by the controller.
      *
-     * @return the number of rows
+     * @return the board spec
      */
-    public int getNoOfRows() {
-        return NO_OF_ROWS;
+    public BoardSpec getBoardSpec() {
+        return BOARD_SPEC;
     }
 
     /**
@@ -0,0 +1,171 @@
+package com.connect4.connect4javafx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An append-only journal of GameRecords, split into segment files named games-000001.c4j,
+ * games-000002.c4j and so on in one directory. Records are only ever appended to the newest
+ * segment, and a new segment is started once the current one would grow past the segment size,
+ * so old segments never change and can be copied or archived while games are being recorded.
+ * Every segment starts with a four byte magic number, followed by the records back to back.
+ * A record that was cut short by a crash is cut off when the journal is opened again.
+ * Read journals with GameJournalReader.
+ */
+public class GameJournal implements Closeable {
+    static final int MAGIC = 0x43344A01;
+    static final int SEGMENT_HEADER_BYTES = Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "games-";
+    private static final String SEGMENT_SUFFIX = ".c4j";
+    private static final long DEFAULT_SEGMENT_BYTES = 16L << 20;
+    private final Path directory;
+    private final long segmentBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private FileChannel channel;
+    private int segmentNumber;
+    private long segmentSize;
+
+    public GameJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a journal for appending, creating its directory if needed.
+     * Recording continues in the newest segment.
+     *
+     * @param  directory     the directory holding the segments
+     * @param  segmentBytes  the size at which a new segment is started
+     *
+     * @throws IOException   if the directory or a segment cannot be opened
+     */
+    public GameJournal(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            Path newest = segments.get(segments.size() - 1);
+            segmentNumber = segmentNumber(newest);
+            channel = FileChannel.open(newest, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmentSize = validLength(channel);
+            if (segmentSize == 0) {
+                // Not even the header made it to disk
+                channel.close();
+                Files.delete(newest);
+                openSegment(segmentNumber);
+            } else {
+                channel.truncate(segmentSize);
+                channel.position(segmentSize);
+            }
+        }
+    }
+
+    /**
+     * Appends a record, starting a new segment first if the current one is full.
+     * The record is handed to the operating system in a single write.
+     *
+     * @param  record       the game to record
+     *
+     * @throws IOException  if the segment cannot be written
+     */
+    public synchronized void append(GameRecord record) throws IOException {
+        int size = record.encodedSize();
+        if (segmentSize > SEGMENT_HEADER_BYTES && segmentSize + size > segmentBytes) {
+            channel.close();
+            openSegment(segmentNumber + 1);
+        }
+        ByteBuffer recordBuffer = size <= buffer.capacity() ? buffer.clear() : ByteBuffer.allocate(size);
+        record.writeTo(recordBuffer);
+        recordBuffer.flip();
+        while (recordBuffer.hasRemaining()) {
+            channel.write(recordBuffer);
+        }
+        segmentSize += size;
+    }
+
+    /**
+     * Closes the current segment.
+     *
+     * @throws IOException  if the segment cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void openSegment(int number) throws IOException {
+        segmentNumber = number;
+        Path file = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(MAGIC).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        segmentSize = SEGMENT_HEADER_BYTES;
+    }
+
+    /**
+     * Finds the end of the last complete record of a segment.
+     *
+     * @param  segment      the segment, opened for reading
+     *
+     * @return              the length of the segment without a torn last record, or 0 if it has no header
+     *
+     * @throws IOException  if the segment cannot be read or is not a journal segment
+     */
+    private static long validLength(FileChannel segment) throws IOException {
+        long size = segment.size();
+        if (size < SEGMENT_HEADER_BYTES) {
+            return 0;
+        }
+        MappedByteBuffer data = segment.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException("Not a game journal segment");
+        }
+        int position = SEGMENT_HEADER_BYTES;
+        while (position + GameRecord.LENGTH_BYTES <= size) {
+            int end = position + GameRecord.LENGTH_BYTES + Short.toUnsignedInt(data.getShort(position));
+            if (end > size) {
+                break;
+            }
+            position = end;
+        }
+        return position;
+    }
+
+    /**
+     * Lists the segments of a journal, oldest first.
+     *
+     * @param  directory    the journal directory
+     *
+     * @return              the segment files
+     *
+     * @throws IOException  if the directory cannot be listed
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
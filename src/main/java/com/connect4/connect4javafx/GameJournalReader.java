@@ -0,0 +1,265 @@
+package com.connect4.connect4javafx;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads a GameJournal through memory-mapped segments. Records are visited with a Cursor, which
+ * decodes fields straight from the mapped pages as they are asked for, so scanning a journal
+ * allocates nothing per game. The segments are mapped once when the reader is created, records
+ * appended later are not seen.
+ * Usage: GameJournalReader [directory] [stats|replay|losses]
+ *     stats   counts the games, results and moves
+ *     replay  replays every game under the rules and lists the games whose recorded result differs
+ *     losses  prints the moves of every game the computer lost, to feed to ProtocolEngine
+ */
+public class GameJournalReader {
+    private static final int HUMAN_PLAYER = 1;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Maps every segment of a journal.
+     *
+     * @param  directory    the journal directory
+     *
+     * @throws IOException  if a segment cannot be mapped or is not a journal segment
+     */
+    public GameJournalReader(Path directory) throws IOException {
+        List<Path> files = GameJournal.segments(directory);
+        segments = new MappedByteBuffer[files.size()];
+        for (int i = 0; i < segments.length; i++) {
+            try (FileChannel channel = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (segments[i].limit() < GameJournal.SEGMENT_HEADER_BYTES || segments[i].getInt(0) != GameJournal.MAGIC) {
+                throw new IOException(files.get(i) + " is not a game journal segment");
+            }
+        }
+    }
+
+    /**
+     * Returns a cursor placed before the first record.
+     *
+     * @return  a new cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks the records of the journal, oldest first. The accessors describe the record that
+     * the last call to next moved to.
+     */
+    public final class Cursor {
+        private int segmentIndex = -1;
+        private MappedByteBuffer segment;
+        private int nextRecord;
+        private int columns;
+        private int rows;
+        private int moveCount;
+        private int movesStart;
+        private int resultPosition;
+        private BoardSpec boardSpec = BoardSpec.STANDARD;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves to the next record. A record cut short at the end of a segment is skipped.
+         *
+         * @return  false if there are no more records
+         */
+        public boolean next() {
+            while (true) {
+                if (segment != null && nextRecord + GameRecord.LENGTH_BYTES <= segment.limit()) {
+                    int start = nextRecord + GameRecord.LENGTH_BYTES;
+                    int end = start + Short.toUnsignedInt(segment.getShort(nextRecord));
+                    if (end <= segment.limit()) {
+                        columns = segment.get(start);
+                        rows = segment.get(start + 1);
+                        moveCount = Byte.toUnsignedInt(segment.get(start + 3));
+                        movesStart = start + GameRecord.FIXED_HEADER_BYTES;
+                        resultPosition = movesStart + GameRecord.movesBytes(columns, moveCount);
+                        nextRecord = end;
+                        return true;
+                    }
+                }
+                if (++segmentIndex >= segments.length) {
+                    segment = null;
+                    return false;
+                }
+                segment = segments[segmentIndex];
+                nextRecord = GameJournal.SEGMENT_HEADER_BYTES;
+            }
+        }
+
+        /**
+         * Returns the size of the board of the record.
+         *
+         * @return  the board spec
+         */
+        public BoardSpec boardSpec() {
+            if (boardSpec.columns() != columns || boardSpec.rows() != rows) {
+                boardSpec = new BoardSpec(columns, rows);
+            }
+            return boardSpec;
+        }
+
+        /**
+         * Returns the player who moved first.
+         *
+         * @return  1 for the human, 2 for the computer
+         */
+        public int firstPlayer() {
+            return segment.get(movesStart - GameRecord.FIXED_HEADER_BYTES + 2);
+        }
+
+        /**
+         * Returns the number of moves of the record.
+         *
+         * @return  the number of moves
+         */
+        public int moveCount() {
+            return moveCount;
+        }
+
+        /**
+         * Returns the time the game started.
+         *
+         * @return  the epoch milliseconds at which the game started
+         */
+        public long startMillis() {
+            return segment.getLong(movesStart - Long.BYTES);
+        }
+
+        /**
+         * Returns one move of the record.
+         *
+         * @param  index  the number of the move, from 0
+         *
+         * @return        the 0-based column of the move
+         */
+        public int move(int index) {
+            if (!GameRecord.isPacked(columns)) {
+                return segment.get(movesStart + index);
+            }
+            int bit = index * GameRecord.MOVE_BITS;
+            int position = movesStart + (bit >>> 3);
+            // A move may straddle two bytes; the byte after the moves is the result, so there always is a next byte
+            int bits = Byte.toUnsignedInt(segment.get(position)) | Byte.toUnsignedInt(segment.get(position + 1)) << Byte.SIZE;
+            return (bits >>> (bit & 7)) & (GameRecord.MAX_PACKED_COLUMNS - 1);
+        }
+
+        /**
+         * Returns the recorded result.
+         *
+         * @return  DRAW, the winning player, or UNFINISHED
+         */
+        public int result() {
+            return segment.get(resultPosition);
+        }
+
+        /**
+         * Decodes the time each move took.
+         *
+         * @param  moveMillis  receives one time per move, at least moveCount() long
+         */
+        public void moveMillis(int[] moveMillis) {
+            int position = resultPosition + 1;
+            for (int i = 0; i < moveCount; i++) {
+                int value = 0;
+                int shift = 0;
+                byte next;
+                do {
+                    next = segment.get(position++);
+                    value |= (next & 0x7F) << shift;
+                    shift += 7;
+                } while (next < 0);
+                moveMillis[i] = value;
+            }
+        }
+
+        /**
+         * Plays the moves of the record on an empty board and works out the result under the rules.
+         *
+         * @return  DRAW, the winning player, UNFINISHED, or -1 if a move is illegal or follows a win
+         */
+        public int replay() {
+            BitBoard position = new BitBoard(boardSpec(), firstPlayer());
+            for (int i = 0; i < moveCount; i++) {
+                int column = move(i);
+                if (column >= columns || !position.canPlay(column)) {
+                    return -1;
+                }
+                if (position.isWinningMove(column)) {
+                    return i == moveCount - 1 ? position.getPlayerToMove() : -1;
+                }
+                position.play(column);
+            }
+            return position.isFull() ? GameRecord.DRAW : GameRecord.UNFINISHED;
+        }
+
+        /**
+         * Copies the record out of the journal.
+         *
+         * @return  the record
+         */
+        public GameRecord record() {
+            byte[] moves = new byte[moveCount];
+            for (int i = 0; i < moveCount; i++) {
+                moves[i] = (byte) move(i);
+            }
+            int[] moveMillis = new int[moveCount];
+            moveMillis(moveMillis);
+            return new GameRecord(boardSpec(), firstPlayer(), startMillis(), moves, result(), moveMillis);
+        }
+    }
+
+    /**
+     * Runs an analysis of a journal from the command line.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : GameController.DEFAULT_JOURNAL_DIRECTORY);
+        String mode = args.length > 1 ? args[1] : "stats";
+        GameJournalReader reader = new GameJournalReader(directory);
+        Cursor cursor = reader.cursor();
+        long startTime = System.nanoTime();
+        long games = 0;
+        long moves = 0;
+        long mismatches = 0;
+        long[] results = new long[GameRecord.UNFINISHED + 1];
+        while (cursor.next()) {
+            games++;
+            moves += cursor.moveCount();
+            results[cursor.result()]++;
+            switch (mode) {
+                case "replay" -> {
+                    int replayed = cursor.replay();
+                    if (replayed != cursor.result()) {
+                        mismatches++;
+                        System.out.println("Game " + games + " recorded as " + cursor.result() + " but replays as "
+                                + replayed + ": " + cursor.record().moveString());
+                    }
+                }
+                case "losses" -> {
+                    if (cursor.result() == HUMAN_PLAYER) {
+                        System.out.println(cursor.record().moveString());
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("%d games, %d moves in %.3f s, %.1f million games/s%n", games, moves, seconds, games / seconds / 1e6);
+        System.out.printf("Draws %d, player 1 wins %d, player 2 wins %d, unfinished %d%n",
+                results[GameRecord.DRAW], results[1], results[2], results[GameRecord.UNFINISHED]);
+        if (mode.equals("replay")) {
+            System.out.println(mismatches + " games replay to a different result");
+        }
+    }
+}
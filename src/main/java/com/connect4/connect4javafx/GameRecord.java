@@ -0,0 +1,140 @@
+package com.connect4.connect4javafx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One finished (or abandoned) game, as stored in a GameJournal.
+ * The binary layout of a record, all numbers big-endian:
+ *     length       u16, the number of bytes that follow
+ *     columns      u8
+ *     rows         u8
+ *     firstPlayer  u8, 1 or 2
+ *     moveCount    u8
+ *     startMillis  i64, the epoch milliseconds at which the game started
+ *     moves        3 bits per move, packed from the lowest bit of the first byte up, on boards
+ *                  of at most 8 columns, otherwise one byte per move
+ *     result       u8, 0 for a draw, 1 or 2 for the winner, 3 if the game was not finished
+ *     moveMillis   one unsigned LEB128 varint per move, the milliseconds the move took
+ * A standard game of 20 moves takes around 40 bytes.
+ *
+ * @param boardSpec    the size of the board
+ * @param firstPlayer  the player who moved first, 1 for the human and 2 for the computer
+ * @param startMillis  the epoch milliseconds at which the game started
+ * @param moves        the 0-based columns of the moves, in order
+ * @param result       DRAW, 1 or 2 for the winner, or UNFINISHED
+ * @param moveMillis   the milliseconds each move took
+ */
+public record GameRecord(BoardSpec boardSpec, int firstPlayer, long startMillis, byte[] moves, int result, int[] moveMillis) {
+    public static final int DRAW = 0;
+    public static final int UNFINISHED = 3;
+    static final int LENGTH_BYTES = Short.BYTES;
+    // columns, rows, firstPlayer, moveCount, startMillis
+    static final int FIXED_HEADER_BYTES = 4 + Long.BYTES;
+    static final int MOVE_BITS = 3;
+    static final int MAX_PACKED_COLUMNS = 1 << MOVE_BITS;
+
+    public GameRecord {
+        if (moves.length != moveMillis.length || moves.length > boardSpec.cells()) {
+            throw new IllegalArgumentException("Expected one time per move and at most " + boardSpec.cells()
+                    + " moves, was " + moves.length + " moves and " + moveMillis.length + " times");
+        }
+    }
+
+    /**
+     * Returns the number of bytes the record takes in a journal, its length prefix included.
+     *
+     * @return  the encoded size
+     */
+    public int encodedSize() {
+        int size = LENGTH_BYTES + FIXED_HEADER_BYTES + movesBytes(boardSpec.columns(), moves.length) + 1;
+        for (int millis : moveMillis) {
+            size += varintSize(millis);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the record at the position of a buffer.
+     *
+     * @param  buffer  the buffer to write to, with at least encodedSize() bytes remaining
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short) (encodedSize() - LENGTH_BYTES));
+        buffer.put((byte) boardSpec.columns()).put((byte) boardSpec.rows());
+        buffer.put((byte) firstPlayer).put((byte) moves.length);
+        buffer.putLong(startMillis);
+        if (isPacked(boardSpec.columns())) {
+            int bits = 0;
+            int bitCount = 0;
+            for (byte move : moves) {
+                bits |= move << bitCount;
+                bitCount += MOVE_BITS;
+                if (bitCount >= Byte.SIZE) {
+                    buffer.put((byte) bits);
+                    bits >>>= Byte.SIZE;
+                    bitCount -= Byte.SIZE;
+                }
+            }
+            if (bitCount > 0) {
+                buffer.put((byte) bits);
+            }
+        } else {
+            buffer.put(moves);
+        }
+        buffer.put((byte) result);
+        for (int millis : moveMillis) {
+            // Seven bits per byte, the top bit set on every byte but the last
+            int value = millis;
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+    }
+
+    /**
+     * Returns the moves as 1-based column digits, the format of the protocol engine's position command.
+     *
+     * @return  the moves, such as "4453"
+     */
+    public String moveString() {
+        StringBuilder digits = new StringBuilder(moves.length);
+        for (byte move : moves) {
+            digits.append(move + 1);
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Checks whether moves on a board of the given width are stored in 3 bits.
+     *
+     * @param  columns  the number of columns
+     *
+     * @return          true if every column fits in 3 bits
+     */
+    static boolean isPacked(int columns) {
+        return columns <= MAX_PACKED_COLUMNS;
+    }
+
+    /**
+     * Returns the number of bytes the moves of a game take.
+     *
+     * @param  columns    the number of columns of the board
+     * @param  moveCount  the number of moves
+     *
+     * @return            the size of the moves
+     */
+    static int movesBytes(int columns, int moveCount) {
+        return isPacked(columns) ? (moveCount * MOVE_BITS + Byte.SIZE - 1) / Byte.SIZE : moveCount;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,528 @@
+package com.connect4.connect4javafx;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves many remote games from one process: human against engine, and human against human.
+ * All sockets are handled by a single selector thread that never blocks, so thousands of idle
+ * connections cost a few hundred bytes each. Engine moves are searched by a shared EnginePool
+ * and handed back to the selector thread, which is the only thread that touches games.
+ * Clients speak the two-byte frames of ServerProtocol. The rules are checked on a BitBoard
+ * per game, the same position the engine searches, so no board conversion is needed per move.
+ * Backpressure: when the engine queue is full, games that need an engine move wait in turn in
+ * a parked queue, and no new connections are accepted until it is empty again. A client that
+ * does not read its replies has its own frames left unread until its output has drained.
+ * A client that does not move, or start a game, within the idle timeout is disconnected.
+ * Usage: GameServer [port] [engineSpec] [workers] [queueCapacity] [idleTimeoutSeconds]
+ */
+public class GameServer {
+    private static final BoardSpec BOARD_SPEC = BoardSpec.STANDARD;
+    private static final int INPUT_BUFFER_SIZE = 64;
+    private static final int OUTPUT_BUFFER_SIZE = 64;
+    // A frame may be answered with up to two frames, and two more may arrive unasked
+    private static final int OUTPUT_RESERVE = 4 * ServerProtocol.FRAME_SIZE;
+    private static final int ACCEPT_BACKLOG = 4096;
+    private static final long TIMEOUT_SWEEP_MILLIS = 1000;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final SelectionKey acceptKey;
+    private final EnginePool enginePool;
+    private final long idleTimeoutNanos;
+    private final Queue<EngineMove> engineMoves = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Game> parkedGames = new ArrayDeque<>();
+    private Connection waitingForOpponent;
+    private volatile boolean running = true;
+    private long gamesStarted;
+    private long movesPlayed;
+
+    /**
+     * A move found by the engine pool, waiting to be played on the selector thread.
+     *
+     * @param game    the game the move was searched for
+     * @param column  the column of the move, or -1 if the search failed
+     */
+    private record EngineMove(Game game, int column) {
+    }
+
+    /**
+     * One game between two seats. A seat without a connection is played by the engine.
+     */
+    private static final class Game {
+        private final BitBoard position = new BitBoard(BOARD_SPEC, 1);
+        private final Connection[] seats = new Connection[3];
+        private final int engineSeat;
+        private boolean over;
+
+        private Game(int engineSeat) {
+            this.engineSeat = engineSeat;
+        }
+
+        private Connection opponentOf(int seat) {
+            return seats[3 - seat];
+        }
+    }
+
+    /**
+     * The state of one client socket.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        private final ByteBuffer output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+        private SelectionKey key;
+        private Game game;
+        private int seat;
+        private long deadline;
+        private boolean readPaused;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Opens the server socket. Nothing is accepted before run is called.
+     *
+     * @param  port               the port to listen on, or 0 for any free port
+     * @param  enginePool         the engines that play the engine seats
+     * @param  idleTimeoutMillis  how long a client may take to move or to start a game
+     *
+     * @throws IOException        if the socket cannot be opened
+     */
+    public GameServer(int port, EnginePool enginePool, long idleTimeoutMillis) throws IOException {
+        this.enginePool = enginePool;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        serverChannel.configureBlocking(false);
+        acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return  the local port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Runs the selector loop on the calling thread until stop is called.
+     *
+     * @throws IOException  if the selector fails
+     */
+    public void run() throws IOException {
+        long nextSweep = System.nanoTime();
+        while (running) {
+            selector.select(TIMEOUT_SWEEP_MILLIS);
+            for (SelectionKey key : selector.selectedKeys()) {
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    try {
+                        accept();
+                    } catch (IOException e) {
+                        System.err.println("Error accepting a connection: " + e.getMessage());
+                    }
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isWritable()) {
+                        flush(connection);
+                        if (!connection.readPaused && connection.input.position() >= ServerProtocol.FRAME_SIZE) {
+                            // Frames that were held back while the output was full
+                            handleFrames(connection);
+                        }
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(connection);
+                    }
+                } catch (IOException e) {
+                    close(connection);
+                }
+            }
+            selector.selectedKeys().clear();
+            playEngineMoves();
+            long now = System.nanoTime();
+            if (now >= nextSweep) {
+                closeTimedOutConnections(now);
+                nextSweep = now + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_SWEEP_MILLIS);
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        enginePool.shutdown();
+        System.out.println("Server stopped after " + gamesStarted + " games and " + movesPlayed + " moves");
+    }
+
+    /**
+     * Asks the selector loop to close every connection and return.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.deadline = System.nanoTime() + idleTimeoutNanos;
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /**
+     * Reads what the client has sent and handles every complete frame.
+     *
+     * @param  connection   the client
+     *
+     * @throws IOException  if the socket fails
+     */
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.input) < 0) {
+            close(connection);
+            return;
+        }
+        handleFrames(connection);
+    }
+
+    private void handleFrames(Connection connection) throws IOException {
+        ByteBuffer input = connection.input;
+        input.flip();
+        while (input.remaining() >= ServerProtocol.FRAME_SIZE && connection.key.isValid()) {
+            if (connection.output.remaining() < OUTPUT_RESERVE) {
+                // The client is not reading its replies, so its frames are left unread until it does
+                connection.readPaused = true;
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                break;
+            }
+            handleFrame(connection, input.get(), input.get());
+        }
+        input.compact();
+    }
+
+    private void handleFrame(Connection connection, byte type, byte argument) throws IOException {
+        switch (type) {
+            case ServerProtocol.NEW_GAME -> startGame(connection, argument);
+            case ServerProtocol.MOVE -> playHumanMove(connection, argument);
+            default -> send(connection, ServerProtocol.ERROR, ServerProtocol.ERROR_UNKNOWN_FRAME);
+        }
+    }
+
+    /**
+     * Starts a game for a client, or puts it in the queue for a human opponent.
+     *
+     * @param  connection   the client
+     * @param  mode         VS_ENGINE, VS_ENGINE_SECOND or VS_HUMAN
+     *
+     * @throws IOException  if the socket fails
+     */
+    private void startGame(Connection connection, byte mode) throws IOException {
+        if (connection.game != null || connection == waitingForOpponent) {
+            send(connection, ServerProtocol.ERROR, ServerProtocol.ERROR_IN_GAME);
+            return;
+        }
+        switch (mode) {
+            case ServerProtocol.VS_ENGINE -> {
+                Game game = new Game(2);
+                join(game, connection, 1);
+            }
+            case ServerProtocol.VS_ENGINE_SECOND -> {
+                Game game = new Game(1);
+                join(game, connection, 2);
+                requestEngineMove(game);
+            }
+            case ServerProtocol.VS_HUMAN -> {
+                if (waitingForOpponent == null) {
+                    waitingForOpponent = connection;
+                    // Waiting for an opponent is not the client's fault, so it cannot time out
+                    connection.deadline = NO_DEADLINE;
+                    return;
+                }
+                Game game = new Game(0);
+                join(game, waitingForOpponent, 1);
+                join(game, connection, 2);
+                waitingForOpponent = null;
+            }
+            default -> send(connection, ServerProtocol.ERROR, ServerProtocol.ERROR_UNKNOWN_FRAME);
+        }
+    }
+
+    private void join(Game game, Connection connection, int seat) throws IOException {
+        if (seat == 1) {
+            gamesStarted++;
+        }
+        game.seats[seat] = connection;
+        connection.game = game;
+        connection.seat = seat;
+        connection.deadline = seat == 1 ? System.nanoTime() + idleTimeoutNanos : NO_DEADLINE;
+        send(connection, ServerProtocol.GAME_STARTED, seat);
+    }
+
+    private void playHumanMove(Connection connection, int column) throws IOException {
+        Game game = connection.game;
+        if (game == null) {
+            send(connection, ServerProtocol.ERROR, ServerProtocol.ERROR_NO_GAME);
+        } else if (game.position.getPlayerToMove() != connection.seat) {
+            send(connection, ServerProtocol.ERROR, ServerProtocol.ERROR_NOT_YOUR_TURN);
+        } else if (column < 0 || column >= BOARD_SPEC.columns() || !game.position.canPlay(column)) {
+            send(connection, ServerProtocol.ERROR, ServerProtocol.ERROR_ILLEGAL_MOVE);
+        } else {
+            play(game, column);
+        }
+    }
+
+    /**
+     * Plays a legal move for the seat to move, tells the opponent, and either ends the game
+     * or passes the turn on.
+     *
+     * @param  game         the game
+     * @param  column       the column of the move
+     *
+     * @throws IOException  if a socket fails
+     */
+    private void play(Game game, int column) throws IOException {
+        int seat = game.position.getPlayerToMove();
+        boolean won = game.position.isWinningMove(column);
+        game.position.play(column);
+        movesPlayed++;
+        Connection opponent = game.opponentOf(seat);
+        if (opponent != null) {
+            send(opponent, ServerProtocol.MOVE_PLAYED, column);
+        }
+        if (won) {
+            finish(game, seat);
+        } else if (game.position.isFull()) {
+            finish(game, 0);
+        } else if (game.engineSeat == 3 - seat) {
+            game.seats[seat].deadline = NO_DEADLINE;
+            requestEngineMove(game);
+        } else {
+            Connection mover = game.seats[seat];
+            if (mover != null) {
+                mover.deadline = NO_DEADLINE;
+            }
+            opponent.deadline = System.nanoTime() + idleTimeoutNanos;
+        }
+    }
+
+    /**
+     * Ends a game and tells both humans the result from their own side.
+     *
+     * @param  game         the game
+     * @param  winnerSeat   the seat that won, or 0 for a draw
+     *
+     * @throws IOException  if a socket fails
+     */
+    private void finish(Game game, int winnerSeat) throws IOException {
+        game.over = true;
+        for (int seat = 1; seat <= 2; seat++) {
+            Connection connection = game.seats[seat];
+            if (connection == null) {
+                continue;
+            }
+            byte result = winnerSeat == 0 ? ServerProtocol.RESULT_DRAW
+                    : winnerSeat == seat ? ServerProtocol.RESULT_WIN : ServerProtocol.RESULT_LOSS;
+            send(connection, ServerProtocol.GAME_OVER, result);
+            leave(connection);
+        }
+    }
+
+    private void leave(Connection connection) {
+        connection.game = null;
+        connection.seat = 0;
+        connection.deadline = System.nanoTime() + idleTimeoutNanos;
+    }
+
+    /**
+     * Hands a game's position to the engine pool, or parks the game if the pool is saturated.
+     * Parked games are submitted in the order they were parked, ahead of any later request.
+     *
+     * @param  game  the game with the engine to move
+     */
+    private void requestEngineMove(Game game) {
+        if (!parkedGames.isEmpty() || !submit(game)) {
+            parkedGames.add(game);
+            acceptKey.interestOps(0);
+        }
+    }
+
+    private boolean submit(Game game) {
+        return enginePool.trySubmit(new BitBoard(game.position), column -> {
+            engineMoves.add(new EngineMove(game, column));
+            selector.wakeup();
+        });
+    }
+
+    /**
+     * Plays the moves the engine workers have found, then refills the engine queue from the parked games.
+     */
+    private void playEngineMoves() throws IOException {
+        EngineMove engineMove;
+        while ((engineMove = engineMoves.poll()) != null) {
+            Game game = engineMove.game();
+            if (game.over) {
+                continue;
+            }
+            int column = engineMove.column();
+            if (column < 0 || !game.position.canPlay(column)) {
+                column = firstPlayableColumn(game.position);
+            }
+            play(game, column);
+        }
+        while (!parkedGames.isEmpty()) {
+            Game game = parkedGames.peek();
+            if (!game.over && !submit(game)) {
+                return;
+            }
+            parkedGames.poll();
+        }
+        if (acceptKey.interestOps() == 0) {
+            acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private static int firstPlayableColumn(BitBoard position) {
+        for (int column = 0; column < position.getColumns(); column++) {
+            if (position.canPlay(column)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Disconnects every client whose deadline has passed. An opponent that is left behind
+     * is told that the game was abandoned.
+     *
+     * @param  now  the current System.nanoTime
+     */
+    private void closeTimedOutConnections(long now) {
+        List<Connection> timedOut = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection && connection.deadline <= now) {
+                timedOut.add(connection);
+            }
+        }
+        for (Connection connection : timedOut) {
+            if (connection.game != null) {
+                sendQuietly(connection, ServerProtocol.GAME_OVER, ServerProtocol.RESULT_TIMEOUT);
+            }
+            close(connection);
+        }
+    }
+
+    /**
+     * Closes a client's socket and ends its game, if it was in one.
+     *
+     * @param  connection  the client
+     */
+    private void close(Connection connection) {
+        if (waitingForOpponent == connection) {
+            waitingForOpponent = null;
+        }
+        Game game = connection.game;
+        if (game != null && !game.over) {
+            game.over = true;
+            Connection opponent = game.opponentOf(connection.seat);
+            if (opponent != null) {
+                sendQuietly(opponent, ServerProtocol.GAME_OVER, ServerProtocol.RESULT_ABANDONED);
+                leave(opponent);
+            }
+        }
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // The socket is gone either way
+        }
+    }
+
+    /**
+     * Queues a frame for a client and writes as much output as the socket takes right away.
+     *
+     * @param  connection   the client
+     * @param  type         the frame type
+     * @param  argument     the frame argument
+     *
+     * @throws IOException  if the socket fails
+     */
+    private void send(Connection connection, byte type, int argument) throws IOException {
+        ServerProtocol.writeFrame(connection.output, type, argument);
+        flush(connection);
+    }
+
+    private void sendQuietly(Connection connection, byte type, int argument) {
+        try {
+            send(connection, type, argument);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Writes pending output, and resumes reading from a client that was paused once its output has drained.
+     *
+     * @param  connection   the client
+     *
+     * @throws IOException  if the socket fails
+     */
+    private void flush(Connection connection) throws IOException {
+        ByteBuffer output = connection.output;
+        output.flip();
+        connection.channel.write(output);
+        boolean drained = !output.hasRemaining();
+        output.compact();
+        if (!connection.key.isValid()) {
+            return;
+        }
+        if (!drained) {
+            connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+        } else if (connection.readPaused) {
+            connection.readPaused = false;
+            connection.key.interestOps(SelectionKey.OP_READ);
+        } else {
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Starts a server from the command line.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4004;
+        EngineConfig engine = EngineConfig.parse(args.length > 1 ? args[1] : "depth=8");
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+        long idleTimeoutSeconds = args.length > 4 ? Long.parseLong(args[4]) : 60;
+
+        EnginePool enginePool = new EnginePool(engine, workers, queueCapacity, OpeningBook.openDefault());
+        GameServer server = new GameServer(port, enginePool, TimeUnit.SECONDS.toMillis(idleTimeoutSeconds));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Listening on port " + server.getPort() + " with " + workers + " engine workers (" + engine + ")");
+        server.run();
+    }
+}
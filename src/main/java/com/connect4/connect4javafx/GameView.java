@@ -0,0 +1,19 @@
+package com.connect4.connect4javafx;
+
+/**
+ * What Connect4Game needs from its user interface: a way to show each token that is placed.
+ * GameController draws the tokens on the JavaFX grid, NONE lets a game run headless.
+ */
+public interface GameView {
+    /** A view that shows nothing, for games played without a window. */
+    GameView NONE = (player, row, column) -> { };
+
+    /**
+     * Shows a token placed by a player.
+     *
+     * @param  player  the player that the token belongs to
+     * @param  row     the 1-based row of the token
+     * @param  column  the column of the token
+     */
+    void createCircleAtNode(Player player, int row, int column);
+}
@@ -0,0 +1,19 @@
+package com.connect4.connect4javafx;
+
+/**
+ * Receives progress from MinimaxAgent after each completed iteration of iterative deepening.
+ * It is called on the searching thread, so it should return quickly.
+ */
+@FunctionalInterface
+public interface IterationListener {
+    /**
+     * Called when an iteration has been searched to the end.
+     *
+     * @param  depth         the depth of the iteration
+     * @param  score         the score of the best move for the player to move
+     * @param  move          the column of the best move
+     * @param  nodes         the nodes visited by the search so far, helpers included
+     * @param  elapsedNanos  the time since the search started
+     */
+    void iterationCompleted(int depth, int score, int move, long nodes, long elapsedNanos);
+}
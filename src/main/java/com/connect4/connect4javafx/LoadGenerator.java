@@ -0,0 +1,299 @@
+package com.connect4.connect4javafx;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays many games against a GameServer at once and measures the move latency: the time from
+ * sending a move to receiving the opponent's answer, or the end of the game.
+ * Every session is a connection that plays random legal moves after a random think time,
+ * and starts a new game whenever one ends. All sessions share one selector thread.
+ * Connections are opened in batches, and latencies are only measured once all sessions are connected.
+ * Usage: LoadGenerator [host] [port] [sessions] [seconds] [thinkMillis] [engine|human]
+ */
+public class LoadGenerator {
+    private static final BoardSpec BOARD_SPEC = BoardSpec.STANDARD;
+    private static final int CONNECT_BATCH = 500;
+    private static final long CONNECT_BATCH_INTERVAL_MILLIS = 50;
+    private final InetSocketAddress address;
+    private final int sessionCount;
+    private final long thinkNanos;
+    private final byte mode;
+    private final Selector selector;
+    private final Random random = new Random(1);
+    private final PriorityQueue<Session> pendingMoves = new PriorityQueue<>((a, b) -> Long.compare(a.moveAt, b.moveAt));
+    private long[] latencies = new long[1 << 16];
+    private int latencyCount;
+    private boolean measuring;
+    private boolean stopping;
+    private int connected;
+    private int connectsPending;
+    private int open;
+    private long games;
+    private long errors;
+    private long timeouts;
+
+    /**
+     * The client side of one connection.
+     */
+    private final class Session {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(64);
+        private final ByteBuffer output = ByteBuffer.allocate(64);
+        private SelectionKey key;
+        private boolean opened;
+        private BitBoard position;
+        private int seat;
+        private long moveSentAt;
+        private long moveAt;
+
+        private Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void send(byte type, int argument) throws IOException {
+            ServerProtocol.writeFrame(output, type, argument);
+            flush();
+        }
+
+        private void flush() throws IOException {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            key.interestOps(output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void startGame() throws IOException {
+            position = null;
+            send(ServerProtocol.NEW_GAME, mode);
+        }
+
+        private void scheduleMove() {
+            moveAt = System.nanoTime() + (thinkNanos == 0 ? 0 : (long) (random.nextDouble() * 2 * thinkNanos));
+            pendingMoves.add(this);
+        }
+
+        private void move() throws IOException {
+            int column;
+            do {
+                column = random.nextInt(BOARD_SPEC.columns());
+            } while (!position.canPlay(column));
+            position.play(column);
+            moveSentAt = System.nanoTime();
+            send(ServerProtocol.MOVE, column);
+        }
+
+        private void handleFrame(byte type, byte argument) throws IOException {
+            switch (type) {
+                case ServerProtocol.GAME_STARTED -> {
+                    position = new BitBoard(BOARD_SPEC, 1);
+                    seat = argument;
+                    if (seat == 1) {
+                        scheduleMove();
+                    }
+                }
+                case ServerProtocol.MOVE_PLAYED -> {
+                    recordLatency();
+                    boolean gameOver = position.isWinningMove(argument);
+                    position.play(argument);
+                    if (!gameOver && !position.isFull()) {
+                        scheduleMove();
+                    }
+                }
+                case ServerProtocol.GAME_OVER -> {
+                    recordLatency();
+                    games++;
+                    if (argument == ServerProtocol.RESULT_TIMEOUT) {
+                        timeouts++;
+                    }
+                    if (stopping) {
+                        close(this);
+                    } else {
+                        startGame();
+                    }
+                }
+                default -> errors++;
+            }
+        }
+
+        private void recordLatency() {
+            if (moveSentAt == 0) {
+                return;
+            }
+            if (measuring) {
+                if (latencyCount == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                }
+                latencies[latencyCount++] = System.nanoTime() - moveSentAt;
+            }
+            moveSentAt = 0;
+        }
+    }
+
+    public LoadGenerator(InetSocketAddress address, int sessionCount, long thinkMillis, byte mode) throws IOException {
+        this.address = address;
+        this.sessionCount = sessionCount;
+        this.thinkNanos = TimeUnit.MILLISECONDS.toNanos(thinkMillis);
+        this.mode = mode;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Opens the sessions, plays for the given time once they are all connected, and prints the latency percentiles.
+     *
+     * @param  seconds      how long to measure
+     *
+     * @throws IOException  if the selector fails
+     */
+    public void run(long seconds) throws IOException {
+        long startTime = System.nanoTime();
+        long nextBatch = startTime;
+        long measureStart = 0;
+        long measureEnd = Long.MAX_VALUE;
+        while (!stopping || open > 0) {
+            long now = System.nanoTime();
+            if (connected < sessionCount && now >= nextBatch) {
+                connectBatch();
+                nextBatch = now + TimeUnit.MILLISECONDS.toNanos(CONNECT_BATCH_INTERVAL_MILLIS);
+            }
+            if (!measuring && !stopping && connected == sessionCount && connectsPending == 0) {
+                measuring = true;
+                measureStart = now;
+                measureEnd = now + TimeUnit.SECONDS.toNanos(seconds);
+                System.out.printf("%d sessions connected in %.1f s, measuring for %d s...%n",
+                        open, (now - startTime) / 1e9, seconds);
+            }
+            if (!stopping && now >= measureEnd) {
+                // Sessions finish the game they are playing and then disconnect
+                stopping = true;
+                measuring = false;
+                closeIdleSessions();
+            }
+            while (!pendingMoves.isEmpty() && pendingMoves.peek().moveAt <= now) {
+                Session session = pendingMoves.poll();
+                if (session.key.isValid()) {
+                    session.move();
+                }
+            }
+            long wait = pendingMoves.isEmpty() ? 10 : Math.max(1, (pendingMoves.peek().moveAt - now) / 1_000_000);
+            selector.select(Math.min(wait, 10));
+            for (SelectionKey key : selector.selectedKeys()) {
+                Session session = (Session) key.attachment();
+                try {
+                    handle(session, key);
+                } catch (IOException e) {
+                    errors++;
+                    close(session);
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+        selector.close();
+        report(Math.min(System.nanoTime(), measureEnd) - measureStart);
+    }
+
+    private void connectBatch() throws IOException {
+        for (int i = 0; i < CONNECT_BATCH && connected < sessionCount; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Session session = new Session(channel);
+            session.key = channel.register(selector, SelectionKey.OP_CONNECT, session);
+            channel.connect(address);
+            connected++;
+            connectsPending++;
+        }
+    }
+
+    private void handle(Session session, SelectionKey key) throws IOException {
+        if (key.isConnectable()) {
+            connectsPending--;
+            session.channel.finishConnect();
+            session.opened = true;
+            open++;
+            session.startGame();
+            return;
+        }
+        if (key.isWritable()) {
+            session.flush();
+        }
+        if (key.isReadable()) {
+            if (session.channel.read(session.input) < 0) {
+                close(session);
+                return;
+            }
+            ByteBuffer input = session.input;
+            input.flip();
+            while (input.remaining() >= ServerProtocol.FRAME_SIZE && key.isValid()) {
+                session.handleFrame(input.get(), input.get());
+            }
+            input.compact();
+        }
+    }
+
+    /**
+     * Closes the sessions that are not in a game, such as those still waiting for a human opponent.
+     */
+    private void closeIdleSessions() {
+        for (SelectionKey key : selector.keys()) {
+            Session session = (Session) key.attachment();
+            if (session.position == null) {
+                close(session);
+            }
+        }
+    }
+
+    private void close(Session session) {
+        if (session.key.isValid() && session.opened) {
+            open--;
+        }
+        session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            // The socket is gone either way
+        }
+    }
+
+    private void report(long measuredNanos) {
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        double seconds = measuredNanos / 1e9;
+        System.out.printf("%d moves in %.1f s, %.0f moves/s, %d games, %d errors, %d timeouts%n",
+                latencyCount, seconds, latencyCount / seconds, games, errors, timeouts);
+        System.out.printf("Move latency: p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Runs the load generator from the command line.
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 4004;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : 30;
+        long thinkMillis = args.length > 4 ? Long.parseLong(args[4]) : 500;
+        byte mode = args.length > 5 && args[5].equals("human") ? ServerProtocol.VS_HUMAN : ServerProtocol.VS_ENGINE;
+
+        new LoadGenerator(new InetSocketAddress(host, port), sessions, thinkMillis, mode).run(seconds);
+    }
+}
@@ -1,450 +1,1019 @@
 package com.connect4.connect4javafx;
 
-import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import jdk.jfr.FlightRecorder;
 public class MinimaxAgent {
-    int maxDepth = 8;
-    int alpha = Integer.MIN_VALUE;
-    int beta = Integer.MAX_VALUE;
+    static final int WIN_SCORE = 1_000_000;
+    private static final int COMPUTER_PLAYER = 2;
+    private static final int DEFAULT_TABLE_SIZE_MB = 16;
+    private static final int NODES_BETWEEN_TIME_CHECKS = 1024;
+    private static final int DEFAULT_SOLVER_THRESHOLD = 20;
+    // Every score lies strictly between -INFINITY and INFINITY, and both can be negated safely
+    private static final int INFINITY = WIN_SCORE + 1;
+    private static final int ASPIRATION_WINDOW = 8;
+    // Moves before this index (the hash move and the killers) are never reduced
+    private static final int FIRST_REDUCED_MOVE = 3;
+    private static final int MIN_REDUCTION_DEPTH = 3;
+    private SearchLimits limits = SearchLimits.depth(8);
+    private int rootStoneCount;
+    private int iterationDepth;
+    private boolean threatExtensions;
+    private boolean lateMoveReductions;
+    private boolean rootSymmetric;
+    private Supplier<Evaluator> evaluatorFactory = ThreatEvaluator::new;
+    private Evaluator evaluator = evaluatorFactory.get();
+    private TranspositionTable transpositionTable = new TranspositionTable(DEFAULT_TABLE_SIZE_MB);
+    // Set to stop the searches, it is never cleared: a new token is given for the next searches instead
+    private volatile AtomicBoolean stopToken = new AtomicBoolean();
+    private AtomicBoolean searchStopToken = stopToken;
+    private boolean aborted;
+    private long deadline;
+    private long nodes;
+    private long helperNodes;
+    private long leafEvaluations;
+    private int completedDepth;
+    private int rootScore;
+    private final long[] iterationNanos = new long[SearchLimits.MAX_DEPTH + 1];
+    private final int[] iterationScores = new int[SearchLimits.MAX_DEPTH + 1];
+    private SearchReport.Source moveSource;
+    private SearchReport lastReport;
+    private IterationListener iterationListener;
+    private boolean recordEvents;
+    private int rootBestColumn;
+    // Triangular table: row ply holds the best line found from that ply on
+    private final int[][] principalVariations = new int[SearchLimits.MAX_DEPTH + 1][SearchLimits.MAX_DEPTH + 1];
+    private final int[] principalVariationLengths = new int[SearchLimits.MAX_DEPTH + 1];
+    // The best line of the last completed iteration, copied out only when asked for
+    private final int[] principalVariation = new int[SearchLimits.MAX_DEPTH + 1];
+    private int principalVariationLength;
+    private long aspirationResearches;
+    private MoveOrdering moveOrdering;
+    private OpeningBook openingBook;
+    private EndgameSolver endgameSolver;
+    private int solverThreshold = DEFAULT_SOLVER_THRESHOLD;
+    private SolveResult lastSolveResult;
+    private long cutoffs;
+    private long forcedMoves;
+    private long lostPositions;
+    private long firstMoveCutoffs;
+    private double effectiveBranchingFactor;
+    private int threads = 1;
+    private MinimaxAgent[] helpers = new MinimaxAgent[0];
+    private ExecutorService helperPool;
+    private Future<?> pendingIteration;
+    private final int columnOffset;
+
+    public MinimaxAgent() {
+        this.columnOffset = 0;
+    }
+
+    /**
+     * Creates a helper for parallel search that shares the main agent's transposition table.
+     *
+     * @param  transpositionTable  the table shared with the main agent
+     * @param  columnOffset        how far to rotate the column order, so helpers search different moves first
+     * @param  evaluatorFactory    creates the helper's own evaluator, of the same kind as the main agent's
+     */
+    private MinimaxAgent(TranspositionTable transpositionTable, int columnOffset, Supplier<Evaluator> evaluatorFactory) {
+        this.transpositionTable = transpositionTable;
+        this.columnOffset = columnOffset;
+        this.evaluatorFactory = evaluatorFactory;
+        this.evaluator = evaluatorFactory.get();
+    }
 
     /**
      * Generates a move based on the current state of the board and the selected column.
      * Calls the minimax algorithm to determine the best move to make.
-     * If no move is found, returns a move using a random column.
+     * If no move is found, returns a move in the first column that is not full.
      *
      * @param  board            the current state of the game board
      *
      * @return                  an array representing the move to be made
      */
     public int[] takeTurn(int[][] board) {
-        int[] bestMove = minimax(board, maxDepth, true, alpha, beta);
-        if (bestMove[1] >= 0) {
-            return new int[]{findLowestPlayableRow(board, bestMove[1]), bestMove[1]};
-        } else {
-            System.out.println("No move found, picking random column...");
-            Random random = new Random();
-            int selectRandomColumn = random.nextInt(Connect4Game.getNoOfColumns());
-            return new int[]{findLowestPlayableRow(board, selectRandomColumn), selectRandomColumn};
+        BitBoard position = BitBoard.fromArray(board, COMPUTER_PLAYER);
+        int bestColumn = findBestColumn(position);
+        if (bestColumn >= 0) {
+            return new int[]{position.getLowestFreeRow(bestColumn) + 1, bestColumn};
         }
+        System.out.println("No move found, picking first playable column...");
+        for (int column = 0; column < position.getColumns(); column++) {
+            if (position.canPlay(column)) {
+                return new int[]{position.getLowestFreeRow(column) + 1, column};
+            }
+        }
+        return new int[]{-1, -1};
     }
 
     /**
-     * Finds the best move for the current player using the minimax algorithm.
+     * Searches the given position for the best move of the player to move.
+     * Uses iterative deepening: depth 1, 2, 3 and so on are searched in turn until the depth
+     * limit is reached, the time budget runs out or stop() is called. The move of the deepest
+     * completed iteration is returned, an iteration that is cut short is thrown away.
+     * Positions found in the opening book are answered straight from the book, and positions
+     * with few enough empty cells are solved exactly by the endgame solver.
      *
-     * @param  board              the game board represented as a 2D array
-     * @param  depth              the current depth of the search
-     * @param  maximizingPlayer   true if the current player is maximizing, false otherwise
-     * @param  alpha              the best value for the maximizing player
-     * @param  beta               the best value for the minimizing player
+     * @param  position  the position to search, left unchanged on return
      *
-     * @return                    an array containing the score and the column of the best move
+     * @return           the column of the best move, or -1 if there is no legal move
      */
-    private int[] minimax(int[][] board, int depth, boolean maximizingPlayer, int alpha, int beta) {
-        int[] bestMove = new int[]{maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE, -1};
+    public int findBestColumn(BitBoard position) {
+        return search(position).move();
+    }
 
-        // Base case
-        if ((depth == 0) || (isGameOver(board))) {
-            return new int[]{evaluate(board), -1};
+    /**
+     * Searches the given position like findBestColumn, and reports how the search went.
+     * The report is also published to EngineMetrics and, while JFR is running, committed as a JFR SearchEvent.
+     *
+     * @param  position  the position to search, left unchanged on return
+     *
+     * @return           the best move with the statistics of the search
+     */
+    public SearchReport search(BitBoard position) {
+        long startTime = System.nanoTime();
+        long tableHitsBefore = transpositionTable.getHits();
+        // Creating the first JFR event starts JFR up, which takes long enough to delay a move
+        recordEvents = FlightRecorder.isInitialized();
+        SearchEvent event = recordEvents ? new SearchEvent() : null;
+        if (event != null) {
+            event.begin();
         }
-
-        // 1 for computer, 2 for human
-        int playerValue = maximizingPlayer ? 2 : 1;
-
-        // Loop through each column
-        for (int column = 0; column < Connect4Game.getNoOfColumns(); column++) {
-            if (isColumnFull(board, column)) {
-                continue;
+        int column = searchColumn(position, startTime);
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        lastReport = new SearchReport(column, rootScore, moveSource, completedDepth, nodes, leafEvaluations,
+                cutoffs, getFirstMoveCutoffRate(), transpositionTable.getHits() - tableHitsBefore, elapsedNanos,
+                Arrays.copyOf(iterationNanos, completedDepth), getPrincipalVariation());
+        EngineMetrics.getInstance().record(lastReport);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.move = column;
+                event.score = rootScore;
+                event.source = moveSource.name();
+                event.depth = completedDepth;
+                event.nodes = nodes;
+                event.leafEvaluations = leafEvaluations;
+                event.betaCutoffs = cutoffs;
+                event.firstMoveCutoffRate = lastReport.firstMoveCutoffRate();
+                event.tableHits = lastReport.tableHits();
+                event.nodesPerSecond = lastReport.nodesPerSecond();
+                event.commit();
             }
+        }
+        return lastReport;
+    }
 
-            // Find the lowest playable row
-            int row = findLowestPlayableRow(board, column);
-            board[row - 1][column] = playerValue;
-
-            // Check if it's a winning move
-            if (isWinningMove(board, column, row - 1)) {
-                board[row - 1][column] = 0; // Undo the move
-                return new int[]{evaluate(board), column};
+    /**
+     * Runs the book lookup, the endgame solver or the iterative deepening search, whichever applies.
+     * Unlike search, it builds no report, so once the tables exist a heuristic search allocates nothing.
+     *
+     * @param  position   the position to search, left unchanged on return
+     * @param  startTime  the System.nanoTime() at which the move's time budget started
+     *
+     * @return            the column of the best move, or -1 if there is no legal move
+     */
+    int searchColumn(BitBoard position, long startTime) {
+        rootStoneCount = position.getStoneCount();
+        rootSymmetric = position.isSymmetric();
+        evaluator.reset(position);
+        prepareMoveOrdering(position);
+        moveOrdering.newSearch();
+        for (MinimaxAgent helperAgent : helpers) {
+            helperAgent.prepareMoveOrdering(position);
+            helperAgent.moveOrdering.newSearch();
+        }
+        transpositionTable.newSearch();
+        searchStopToken = stopToken;
+        aborted = false;
+        nodes = 0;
+        helperNodes = 0;
+        leafEvaluations = 0;
+        cutoffs = 0;
+        forcedMoves = 0;
+        lostPositions = 0;
+        firstMoveCutoffs = 0;
+        effectiveBranchingFactor = 0;
+        completedDepth = 0;
+        rootScore = 0;
+        aspirationResearches = 0;
+        principalVariationLength = 0;
+        lastSolveResult = null;
+        if (openingBook != null) {
+            int bookColumn = openingBook.lookup(position);
+            if (bookColumn >= 0 && position.canPlay(bookColumn)) {
+                moveSource = SearchReport.Source.BOOK;
+                setPrincipalVariation(bookColumn);
+                return bookColumn;
             }
+        }
+        deadline = limits.hasDeadline() ? startTime + limits.moveTimeMillis() * 1_000_000 : Long.MAX_VALUE;
 
-            // !maximizingPlayer because it's the other player's turn
-            int score = minimax(board, depth - 1, !maximizingPlayer, alpha, beta)[0];
-
-            board[row - 1][column] = 0; // Undo the move
-
-            // Update the best move
-            if ((maximizingPlayer && score > alpha) || (!maximizingPlayer && score < beta)) {
-                if (maximizingPlayer) {
-                    alpha = score;
-                } else {
-                    beta = score;
+        int emptyCells = position.getColumns() * position.getRows() - position.getStoneCount();
+        if (emptyCells <= solverThreshold && emptyCells > 0) {
+            if (endgameSolver == null) {
+                endgameSolver = new EndgameSolver();
+            }
+            // If the solver runs out of time, the heuristic search gets whatever is left
+            endgameSolver.setStopToken(searchStopToken);
+            lastSolveResult = endgameSolver.solve(position, deadline);
+            nodes = endgameSolver.getNodes();
+            if (lastSolveResult != null) {
+                moveSource = SearchReport.Source.SOLVER;
+                rootScore = scoreOf(lastSolveResult, position.getStoneCount());
+                setPrincipalVariation(lastSolveResult.move());
+                return lastSolveResult.move();
+            }
+        }
+        moveSource = SearchReport.Source.SEARCH;
+        int depthLimit = Math.min(limits.maxDepth(), emptyCells);
+        int bestColumn = -1;
+        rootBestColumn = -1;
+        long previousIterationNodes = 0;
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            long iterationStart = System.nanoTime();
+            SearchIterationEvent iterationEvent = recordEvents ? new SearchIterationEvent() : null;
+            if (iterationEvent != null) {
+                iterationEvent.begin();
+            }
+            long nodesBefore = nodes;
+            startHelpers(position, depth);
+            // Scores swing between odd and even depths, so the window is centred on the last score of the same parity
+            int score = searchRoot(position, depth, depth > 2 ? iterationScores[depth - 2] : rootScore);
+            stopHelpers();
+            if (aborted) {
+                break;
+            }
+            long iterationNodes = nodes - nodesBefore;
+            if (previousIterationNodes > 0) {
+                effectiveBranchingFactor = (double) iterationNodes / previousIterationNodes;
+            }
+            previousIterationNodes = iterationNodes;
+            principalVariationLength = principalVariationLengths[0];
+            System.arraycopy(principalVariations[0], 0, principalVariation, 0, principalVariationLength);
+            bestColumn = principalVariationLength > 0 ? principalVariation[0] : -1;
+            rootBestColumn = bestColumn;
+            completedDepth = depth;
+            rootScore = score;
+            iterationScores[depth] = score;
+            iterationNanos[depth - 1] = System.nanoTime() - iterationStart;
+            if (iterationEvent != null) {
+                iterationEvent.end();
+                if (iterationEvent.shouldCommit()) {
+                    iterationEvent.depth = depth;
+                    iterationEvent.nodes = iterationNodes;
+                    iterationEvent.score = score;
+                    iterationEvent.move = bestColumn;
+                    iterationEvent.commit();
                 }
-                bestMove[0] = score;
-                bestMove[1] = column;
             }
-            if (alpha >= beta) {
+            if (iterationListener != null) {
+                iterationListener.iterationCompleted(depth, score, bestColumn, nodes, System.nanoTime() - startTime);
+            }
+            // A proven win or loss will not change with more depth
+            if (isProvenScore(score)) {
                 break;
             }
+            // The next iteration takes longer than all the previous ones together
+            if (limits.hasDeadline() && System.nanoTime() - startTime > (deadline - startTime) / 2) {
+                break;
+            }
+        }
+        if (bestColumn < 0 && aborted) {
+            // Stopped before the first iteration finished
+            bestColumn = fallbackColumn(position);
+            setPrincipalVariation(bestColumn);
         }
-        return bestMove;
+        return bestColumn;
     }
 
     /**
-     * Determines whether the game is over based on the current state of the board.
+     * Picks a move without searching, the one nearest the centre among those that do not lose at once.
      *
-     * @param  board  a 2D array representing the game board
+     * @param  position  the root position
      *
-     * @return true if the game is over, false otherwise
+     * @return           the column of the move, or -1 if there is no legal move
      */
-    private boolean isGameOver(int[][] board) {
-        return checkGameWin(board) || checkDraw(board);
+    private static int fallbackColumn(BitBoard position) {
+        long nonLosingMoves = position.nonLosingMoves();
+        int columns = position.getColumns();
+        int fallback = -1;
+        for (int i = 0; i < columns; i++) {
+            int column = columns / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+            if (!position.canPlay(column)) {
+                continue;
+            }
+            if ((nonLosingMoves & position.columnMask(column)) != 0) {
+                return column;
+            }
+            if (fallback < 0) {
+                fallback = column;
+            }
+        }
+        return fallback;
     }
 
     /**
-     * Checks if the game is won based on the current state of the board.
-     * Checks the three possible win conditions: rows, columns, and diagonals.
+     * Makes a single move the best line, as the book and the solver give no line beyond their move.
      *
-     * @param  board  a 2D array representing the game board
-     *
-     * @return        true if the game is won, false otherwise
+     * @param  column  the column of the move, or -1 for no move
      */
-    private boolean checkGameWin(int[][] board) {
-        return checkRows(board) || checkColumns(board) || checkDiagonals(board);
+    private void setPrincipalVariation(int column) {
+        principalVariation[0] = column;
+        principalVariationLength = column < 0 ? 0 : 1;
     }
 
     /**
-     * Checks the diagonals to see if there is a winner.
-     * 2 is used in the array to indicate that the computer has won.
-     * If 2 returned by Connect4Game.checkDiagonals, the computer has won.
+     * Converts a proven result into the score scale of the search: wins are worth less the later they come.
      *
-     * @param  board  a 2D array representing the game board
+     * @param  result      the result of the endgame solver
+     * @param  stoneCount  the number of stones of the solved position
      *
-     * @return        true if the computer has won, false otherwise
+     * @return             the score for the player to move
      */
-    private boolean checkDiagonals(int[][] board) {
-        return Connect4Game.checkDiagonals(board) == 2;
+    private static int scoreOf(SolveResult result, int stoneCount) {
+        int winScore = WIN_SCORE - (stoneCount + result.pliesToEnd() - 1);
+        return switch (result.outcome()) {
+            case WIN -> winScore;
+            case LOSS -> -winScore;
+            case DRAW -> 0;
+        };
     }
 
     /**
-     * Checks the columns to see if there is a winner.
-     * 2 is used in the array to indicate that the computer has won.
-     * If 2 returned by Connect4Game.checkColumns, the computer has won.
-     *
-     * @param  board  a 2D array representing the game board
+     * Starts every helper on the same iteration as the main search (Lazy SMP).
+     * Helpers only fill the shared transposition table, their own results are ignored.
+     * They never search deeper than the main search, so a fixed-depth search finds the same
+     * scores, and therefore the same move, as with a single thread.
      *
-     * @return        true if the computer has won, false otherwise
+     * @param  position  the root position, copied for each helper
+     * @param  depth     the depth of the iteration
      */
-    private boolean checkColumns(int[][] board) {
-        return Connect4Game.checkColumns(board) == 2;
+    private void startHelpers(BitBoard position, int depth) {
+        if (helpers.length == 0) {
+            return;
+        }
+        for (MinimaxAgent helperAgent : helpers) {
+            // Only stopHelpers, called after this on the same thread, stops a helper, never the clock
+            helperAgent.stopToken.set(false);
+            helperAgent.deadline = Long.MAX_VALUE;
+            helperAgent.rootBestColumn = rootBestColumn;
+            helperAgent.threatExtensions = threatExtensions;
+            helperAgent.lateMoveReductions = lateMoveReductions;
+            BitBoard helperPosition = new BitBoard(position);
+            helperAgent.pendingIteration = helperPool.submit(() -> helperAgent.searchIteration(helperPosition, depth));
+        }
     }
 
     /**
-     * Checks the rows to see if there is a winner.
-     * 2 is used in the array to indicate that the computer has won.
-     * If 2 returned by Connect4Game.checkRows, the computer has won.
-     *
-     * @param  board    a 2D array representing the game board
-     *
-     * @return          true if the computer has won, false otherwise
+     * Stops the helpers and waits until they have all left their iteration.
      */
-    private boolean checkRows(int[][] board) {
-        return Connect4Game.checkRows(board) == 2;
+    private void stopHelpers() {
+        for (MinimaxAgent helperAgent : helpers) {
+            helperAgent.stop();
+        }
+        for (MinimaxAgent helperAgent : helpers) {
+            try {
+                helperAgent.pendingIteration.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Helper search failed", e.getCause());
+            }
+            nodes += helperAgent.nodes;
+            helperNodes += helperAgent.nodes;
+            leafEvaluations += helperAgent.leafEvaluations;
+            cutoffs += helperAgent.cutoffs;
+            forcedMoves += helperAgent.forcedMoves;
+            lostPositions += helperAgent.lostPositions;
+            firstMoveCutoffs += helperAgent.firstMoveCutoffs;
+        }
     }
 
     /**
-     * Checks if a specific column in the board is full.
+     * Runs one fixed-depth iteration on a helper thread.
      *
-     * @param  board   a 2D array representing the game board
-     * @param  column  the column index to check
-     *
-     * @return         true if the column is full, false otherwise
+     * @param  position  the helper's own copy of the root position
+     * @param  depth     the depth of the iteration
      */
-    private boolean isColumnFull(int[][] board, int column) {
-        return board[0][column] != 0;
+    private void searchIteration(BitBoard position, int depth) {
+        rootStoneCount = position.getStoneCount();
+        rootSymmetric = position.isSymmetric();
+        evaluator.reset(position);
+        prepareMoveOrdering(position);
+        aborted = false;
+        nodes = 0;
+        leafEvaluations = 0;
+        cutoffs = 0;
+        forcedMoves = 0;
+        lostPositions = 0;
+        firstMoveCutoffs = 0;
+        iterationDepth = depth;
+        negamax(position, depth, -INFINITY, INFINITY);
     }
 
     /**
-     * Finds the lowest playable row for a given column in the board.
-     *
-     * @param  board   a 2D array representing the game board
-     * @param  column  the column index to check
+     * Sets the number of threads used by the search, including the calling thread.
      *
-     * @return         the lowest playable row for the given column or -1 if the column is full
+     * @param  threads  the number of search threads
      */
-    private int findLowestPlayableRow(int[][] board, int column) {
-        for (int row = Connect4Game.getNoOfRows() - 1; row >= 0; row--) {
-            if (board[row][column] == 0) {
-                return row + 1;  // Return the row index (1-based) where the token can be placed
-            }
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed, was " + threads);
         }
-        // If the column is full, return -1 or handle accordingly
-        return -1;
+        shutdown();
+        this.threads = threads;
+        createHelpers();
     }
 
     /**
-     * Evaluation function for the current board position
+     * Returns the number of threads used by the search.
      *
-     * @param  board  a 2D array representing the game board
-     *
-     * @return        the score representing the evaluation of the board position
+     * @return  the number of search threads
      */
-    private int evaluate(int[][] board) {
-        // Evaluation function for the current board position
-        int computerPlayer = 2; // RED
-        int humanPlayer = 1; // BLUE
-
-        int score = 0;
+    public int getThreads() {
+        return threads;
+    }
 
-        // Check rows, columns, and diagonals for potential winning combinations
-        score += evaluateForPlayer(board, computerPlayer);
-        score -= evaluateForPlayer(board, humanPlayer);
+    /**
+     * Stops the helper threads of a parallel search. The agent falls back to a single thread.
+     */
+    public void shutdown() {
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+            helperPool = null;
+        }
+        helpers = new MinimaxAgent[0];
+    }
 
-        return score;
+    private void createHelpers() {
+        if (threads == 1) {
+            return;
+        }
+        helpers = new MinimaxAgent[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new MinimaxAgent(transpositionTable, i + 1, evaluatorFactory);
+        }
+        helperPool = Executors.newFixedThreadPool(helpers.length, runnable -> {
+            Thread thread = new Thread(runnable, "minimax-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
-     * Evaluates the given board for the specified player and returns the score.
-     *
-     * @param  board   a 2D array representing the game board
-     * @param  player  the player for whom the board is being evaluated
+     * Sets the opening book consulted before searching.
      *
-     * @return         the score of the evaluation
+     * @param  openingBook  the opening book, or null to always search
      */
-    private int evaluateForPlayer(int[][] board, int player) {
-        int score = 0;
-        score += evaluateLine(board, player);
-        return score;
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
     }
 
     /**
-     * Evaluates the given game board for the specified player and returns the score.
-     *
-     * @param  board  a 2D array representing the game board
-     * @param  player the player for whom the board is evaluated
-     *
-     * @return        the score obtained by the player after evaluating the board
+     * Asks a running search to stop as soon as possible, by setting the current stop token.
+     * The search still returns the move of its deepest completed iteration, or if it is stopped
+     * during the first iteration, the move nearest the centre that does not lose at once.
+     * The searches started afterwards stop at once as well, until a new token is set with setStopToken.
      */
-    private int evaluateLine(int[][] board, int player) {
-        int score = 0;
+    public void stop() {
+        stopToken.set(true);
+    }
 
-        // Evaluate rows
-        for (int row = 0; row < Connect4Game.getNoOfRows(); row++) {
-            for (int col = 0; col < Connect4Game.getNoOfColumns() - 3; col++) {
-                int value1 = board[row][col];
-                int value2 = board[row][col + 1];
-                int value3 = board[row][col + 2];
-                int value4 = board[row][col + 3];
+    /**
+     * Sets the token that stops the searches started from now on. A search stops as soon as the
+     * token is set, even if it was set before the search began, so a stop is never lost to a
+     * search that was just about to start. Callers that stop searches from another thread give
+     * each request its own token, and set that token instead of calling stop().
+     *
+     * @param  stopToken  the stop token of the next searches
+     */
+    public void setStopToken(AtomicBoolean stopToken) {
+        this.stopToken = stopToken;
+    }
 
-                score += evaluatePosition(value1, value2, value3, value4, player);
-            }
-        }
+    /**
+     * Sets the number of empty cells at or below which positions are solved exactly
+     * instead of searched heuristically.
+     *
+     * @param  emptyCells  the solver threshold, 0 to never use the solver
+     */
+    public void setSolverThreshold(int emptyCells) {
+        this.solverThreshold = emptyCells;
+    }
 
-        // Evaluate columns
-        for (int col = 0; col < Connect4Game.getNoOfColumns(); col++) {
-            for (int row = 0; row < Connect4Game.getNoOfRows() - 3; row++) {
-                int value1 = board[row][col];
-                int value2 = board[row + 1][col];
-                int value3 = board[row + 2][col];
-                int value4 = board[row + 3][col];
+    /**
+     * Sets whether moves that create a threat are searched one ply deeper, off by default.
+     * A threat is a cell where a player would complete four-in-a-row and that can be played on
+     * the next move, so the reply is forced and the line is not over at the horizon. The extra
+     * ply covers the forced block, which is not extended itself.
+     *
+     * @param  threatExtensions  true to extend threats
+     */
+    public void setThreatExtensions(boolean threatExtensions) {
+        this.threatExtensions = threatExtensions;
+    }
 
-                score += evaluatePosition(value1, value2, value3, value4, player);
-            }
-        }
+    /**
+     * Sets whether late quiet moves are first searched one ply shallower, off by default.
+     * Moves that create or block a threat are never reduced.
+     * A reduced move that beats the best score so far is searched again at full depth, so only
+     * moves that look bad are ever decided by the shallower search.
+     *
+     * @param  lateMoveReductions  true to reduce late moves
+     */
+    public void setLateMoveReductions(boolean lateMoveReductions) {
+        this.lateMoveReductions = lateMoveReductions;
+    }
 
-        // Evaluate diagonals from top-left to bottom-right
-        for (int col = 0; col <= Connect4Game.getNoOfColumns() - 4; col++) {
-            for (int row = 0; row < Connect4Game.getNoOfRows() - 4; row++) {
-                int value1 = board[row][col];
-                int value2 = board[row + 1][col + 1];
-                int value3 = board[row + 2][col + 2];
-                int value4 = board[row + 3][col + 3];
+    /**
+     * Returns the proven result of the last search, if the endgame solver decided it.
+     *
+     * @return  the result of the endgame solver, or null if the last move was searched heuristically
+     */
+    public SolveResult getLastSolveResult() {
+        return lastSolveResult;
+    }
 
-                score += evaluatePosition(value1, value2, value3, value4, player);
-            }
-        }
+    /**
+     * Sets the depth and time limits used by the following searches.
+     *
+     * @param  limits  the search limits
+     */
+    public void setSearchLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
 
-        // Evaluate diagonals from top-right to bottom-left
-        for (int col = Connect4Game.getNoOfColumns() - 1; col >= 3; col--) {
-            for (int row = 0; row <= Connect4Game.getNoOfRows() - 4; row++) {
-                int value1 = board[row][col];
-                int value2 = board[row + 1][col - 1];
-                int value3 = board[row + 2][col - 2];
-                int value4 = board[row + 3][col - 3];
+    /**
+     * Returns the depth and time limits used by searches.
+     *
+     * @return  the search limits
+     */
+    public SearchLimits getSearchLimits() {
+        return limits;
+    }
 
-                score += evaluatePosition(value1, value2, value3, value4, player);
-            }
-        }
-        return score;
+    /**
+     * Returns the number of nodes visited by the last search, helpers included.
+     *
+     * @return  the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
     }
 
     /**
-     * Evaluates a position based on the number of computer player and human player tokens.
+     * Returns the number of nodes the helper threads visited in the last search, part of getNodes.
      *
-     * @param  a     the value of the first token
-     * @param  b     the value of the second token
-     * @param  c     the value of the third token
-     * @param  d     the value of the fourth token
-     * @param  player  the player whose tokens are being evaluated
+     * @return  the number of helper nodes, 0 with a single thread
+     */
+    public long getHelperNodes() {
+        return helperNodes;
+    }
+
+    /**
+     * Sets the listener told about every completed iteration of the following searches.
      *
-     * @return          the score of the position
+     * @param  iterationListener  the listener, or null for none
      */
-    private int evaluatePosition(int a, int b, int c, int d, int player) {
-        int score = 0;
+    public void setIterationListener(IterationListener iterationListener) {
+        this.iterationListener = iterationListener;
+    }
 
-        // Evaluate a position based on the number of computer player and human player tokens
-        if (a == player) score++;
-        else if (a != 0) score--;
+    /**
+     * Returns the report of the last search.
+     *
+     * @return  the search report, or null if the agent has not searched yet
+     */
+    public SearchReport getLastReport() {
+        return lastReport;
+    }
 
-        if (b == player) score++;
-        else if (b != 0) score--;
+    /**
+     * Returns the best line of the last completed iteration, the engine's move first.
+     * While a search runs, and so in an IterationListener, it is the line of the iteration just completed.
+     *
+     * @return  the columns of the line, empty if there was no move
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(principalVariation, principalVariationLength);
+    }
 
-        if (c == player) score++;
-        else if (c != 0) score--;
+    /**
+     * Returns how many times the last search had to repeat a root search whose score fell outside the aspiration window.
+     *
+     * @return  the number of aspiration re-searches
+     */
+    public long getAspirationResearches() {
+        return aspirationResearches;
+    }
 
-        if (d == player) score++;
-        else if (d != 0) score--;
+    /**
+     * Returns how many nodes of the last search had a single move that does not lose at once,
+     * which was played without a search of the alternatives.
+     *
+     * @return  the number of forced moves
+     */
+    public long getForcedMoves() {
+        return forcedMoves;
+    }
 
-        // Give higher scores for positions with more computer player tokens
-        if (score == 2) score *= 2;
-        else if (score == 3) score *= 5;
+    /**
+     * Returns how many nodes of the last search were scored as lost without a search, because
+     * every move lets the opponent win at once.
+     *
+     * @return  the number of lost positions
+     */
+    public long getLostPositions() {
+        return lostPositions;
+    }
 
-        return score;
+    /**
+     * Returns the share of beta cutoffs of the last search that came from the first move tried.
+     * The closer to 1, the better the move ordering.
+     *
+     * @return  the first-move cutoff rate, between 0 and 1
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
     }
 
     /**
-     * Determines whether a move is a winning move on the game board.
+     * Returns how many times more nodes the last completed iteration needed than the one before.
      *
-     * @param  board   a 2D array representing the game board
-     * @param  column  the column of the move
-     * @param  row     the row of the move
+     * @return  the effective branching factor, or 0 if fewer than two iterations completed
+     */
+    public double getEffectiveBranchingFactor() {
+        return effectiveBranchingFactor;
+    }
+
+    /**
+     * Returns the depth of the deepest iteration the last search completed.
      *
-     * @return         true if the move is a winning move, false otherwise
+     * @return  the completed depth in plies
      */
-    private boolean isWinningMove(int[][] board, int column, int row) {
-        int piecePlayer = board[row][column];
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
 
-        if (checkVertical(board, column, row, piecePlayer)) {
+    /**
+     * Checks whether the search has to stop, looking at the clock only every so many nodes.
+     * The time limit never cuts the first iteration of the main search short, so there is always
+     * a searched move to return, but the stop token does. A helper's completed depth stays 0, so only
+     * stopHelpers ends its iteration.
+     *
+     * @return  true if the search should unwind, false otherwise
+     */
+    private boolean shouldAbort() {
+        if (aborted) {
             return true;
         }
+        if (searchStopToken.get() || (completedDepth > 0
+                && (nodes & (NODES_BETWEEN_TIME_CHECKS - 1)) == 0 && System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        return aborted;
+    }
 
-        if (checkHorizontal(board, column, row, piecePlayer)) {
-            return true;
+    /**
+     * Replaces the transposition table with an empty one of the given size.
+     *
+     * @param  sizeInMegabytes  the memory budget of the table
+     */
+    public void setTranspositionTableSize(int sizeInMegabytes) {
+        transpositionTable = new TranspositionTable(sizeInMegabytes);
+        setThreads(threads);
+    }
+
+    /**
+     * Sets how leaf positions are scored, with the ThreatEvaluator by default. Every search thread
+     * gets its own evaluator from the factory, as evaluators keep incremental state.
+     *
+     * @param  evaluatorFactory  creates a new evaluator
+     */
+    public void setEvaluatorFactory(Supplier<Evaluator> evaluatorFactory) {
+        this.evaluatorFactory = evaluatorFactory;
+        this.evaluator = evaluatorFactory.get();
+        setThreads(threads);
+    }
+
+    /**
+     * Forgets everything learned from earlier searches: the transposition table and the move
+     * ordering tables of the agent and its helpers. The next search then finds the same result,
+     * and visits the same nodes, whatever was searched before.
+     */
+    public void newGame() {
+        transpositionTable.clear();
+        moveOrdering = null;
+        for (MinimaxAgent helperAgent : helpers) {
+            helperAgent.moveOrdering = null;
         }
+    }
 
-        return checkDiagonals(board, column, row, piecePlayer);
+    /**
+     * Returns the transposition table, mainly so its hit and collision counters can be read.
+     *
+     * @return  the transposition table used by the search
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
     }
 
     /**
-     * Checks if there is a win on either of the diagonals of the game board.
+     * Searches the root with an aspiration window centred on the score an earlier iteration found.
+     * Scores rarely move far between iterations, and a narrow window cuts off more.
+     * If the score falls outside the window, the search is repeated with the window widened on
+     * that side, until the score lands inside. The first iteration, and any iteration after a
+     * proven result, uses the full window.
      *
-     * @param  board         a 2D array representing the game board
-     * @param  column        the column index of the last piece placed
-     * @param  row           the row index of the last piece placed
-     * @param  piecePlayer   the player ID of the last piece placed
+     * @param  position       the root position
+     * @param  depth          the depth of the iteration
+     * @param  previousScore  the score expected, found by an earlier iteration
      *
-     * @return               true if there is a win on either of the diagonals, false otherwise
+     * @return                the score of the root for the player to move
      */
-    private boolean checkDiagonals(int[][] board, int column, int row, int piecePlayer) {
-        return checkDiagonal(board, column, row, 1, piecePlayer) || checkDiagonal(board, column, row, -1, piecePlayer);
+    private int searchRoot(BitBoard position, int depth, int previousScore) {
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        int delta = ASPIRATION_WINDOW;
+        iterationDepth = depth;
+        if (depth > 1 && !isProvenScore(previousScore)) {
+            alpha = previousScore - delta;
+            beta = previousScore + delta;
+        }
+        while (true) {
+            int score = negamax(position, depth, alpha, beta);
+            if (aborted) {
+                return score;
+            }
+            if (score <= alpha && alpha > -INFINITY) {
+                delta *= 4;
+                alpha = widen(score - delta, -INFINITY);
+            } else if (score >= beta && beta < INFINITY) {
+                // The move that failed high is the one to try first in the wider search
+                rootBestColumn = principalVariations[0][0];
+                delta *= 4;
+                beta = widen(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+            aspirationResearches++;
+        }
     }
 
     /**
-     * Checks if there is a diagonal line of 4 pieces of the same player on the game board,
-     * starting from the given column and row, and moving in the given row direction.
+     * Returns an aspiration bound, or the unbounded value once the bound reaches proven results.
      *
-     * @param  board         a 2D array representing the game board
-     * @param  column        the starting column index
-     * @param  row           the starting row index
-     * @param  rowDirection  the direction to move in rows (1 for down, -1 for up)
-     * @param  piecePlayer   the player's piece to check for
+     * @param  bound      the widened bound
+     * @param  unbounded  -INFINITY or INFINITY
      *
-     * @return               true if there is a diagonal line of 4 pieces, false otherwise
+     * @return            the bound to search with
      */
-    private boolean checkDiagonal(int[][] board, int column, int row, int rowDirection, int piecePlayer) {
-        int count = 1;
+    private static int widen(int bound, int unbounded) {
+        return isProvenScore(bound) ? unbounded : bound;
+    }
 
-        for (int i = 1; i < 4; i++) {
-            int columnNext = column - i;
-            int rowNext = row - i * rowDirection;
+    private static boolean isProvenScore(int score) {
+        return Math.abs(score) > WIN_SCORE - SearchLimits.MAX_DEPTH;
+    }
 
-            if (columnNext >= 0 && columnNext < Connect4Game.getNoOfColumns() && rowNext >= 0 && rowNext < Connect4Game.getNoOfRows() && board[rowNext][columnNext] == piecePlayer) {
-                count++;
-            } else {
-                break;
+    /**
+     * Finds the score of a position for the player to move with negamax principal variation search.
+     * The first move is searched with the full window. Every later move is only tested with a
+     * null window, which proves cheaply that it is no better than the best so far, and is
+     * searched again with the full window if the test fails high.
+     * Optionally, moves that create a threat are extended by one ply and late quiet moves are
+     * reduced by one ply, see setThreatExtensions and setLateMoveReductions.
+     * Results are cached in the transposition table from the point of view of the player to
+     * move at each node. Moves are tried in the order given by MoveOrdering.
+     * Nothing is allocated per node: the score is returned as a primitive and the best line
+     * is written into a preallocated triangular table.
+     *
+     * @param  position  the position to search
+     * @param  depth     the remaining depth of the search
+     * @param  alpha     the score the player to move is already sure of
+     * @param  beta      the score the opponent is already sure of
+     *
+     * @return           the score of the position for the player to move, exact if it lies
+     *                   inside the window, otherwise a bound on the far side of the window;
+     *                   the best line is written to principalVariations[ply]
+     */
+    private int negamax(BitBoard position, int depth, int alpha, int beta) {
+        int ply = position.getStoneCount() - rootStoneCount;
+        principalVariationLengths[ply] = 0;
+        nodes++;
+        if (shouldAbort()) {
+            return 0;
+        }
+
+        // A winning move ends the game, sooner wins are worth more.
+        // Checked before the horizon too, a pending win is beyond what the evaluator can score
+        int winningColumn = winningColumn(position);
+        if (winningColumn >= 0) {
+            principalVariations[ply][0] = winningColumn;
+            principalVariationLengths[ply] = 1;
+            return WIN_SCORE - position.getStoneCount();
+        }
+
+        // A full board without a win is a draw
+        if (position.isFull()) {
+            return 0;
+        }
+
+        // Base case
+        if (depth == 0) {
+            leafEvaluations++;
+            return evaluator.evaluate(position.getPlayerToMove());
+        }
+
+        // With two threats to block, or only moves under the opponent's winning cells, the opponent wins next move
+        boolean root = ply == 0;
+        long nonLosingMoves = position.nonLosingMoves();
+        if (nonLosingMoves == 0 && !root) {
+            lostPositions++;
+            return -(WIN_SCORE - position.getStoneCount() - 1);
+        }
+
+        // A forced move, usually a block, is played without probing the table or ordering the moves
+        if (!root && (nonLosingMoves & (nonLosingMoves - 1)) == 0) {
+            forcedMoves++;
+            int column = columnOf(position, nonLosingMoves);
+            int bit = position.getFreeBit(column);
+            int player = position.getPlayerToMove();
+            position.play(column);
+            evaluator.play(bit, player);
+            int score = -negamax(position, depth - 1, -beta, -alpha);
+            position.undo();
+            evaluator.undo(bit, player);
+            principalVariations[ply][0] = column;
+            System.arraycopy(principalVariations[ply + 1], 0, principalVariations[ply], 1, principalVariationLengths[ply + 1]);
+            principalVariationLengths[ply] = principalVariationLengths[ply + 1] + 1;
+            return score;
+        }
+
+        // A position and its mirror image share one entry, its move stored in the canonical orientation
+        long key = position.getCanonicalHash();
+        boolean mirrored = position.isMirrorCanonical();
+        int hashMove = -1;
+        long entry = transpositionTable.probe(key);
+        if (root) {
+            // Helpers write root entries too, so the root order comes from this search alone
+            hashMove = rootBestColumn;
+        }
+        if (entry != 0) {
+            if (!root) {
+                hashMove = TranspositionTable.moveOf(entry);
+                if (mirrored && hashMove >= 0) {
+                    hashMove = position.mirrorColumn(hashMove);
+                }
+            }
+            // Never cut off at the root, it has to come back with a move
+            if (TranspositionTable.depthOf(entry) >= depth && !root) {
+                int score = TranspositionTable.scoreOf(entry);
+                int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    if (hashMove >= 0) {
+                        principalVariations[ply][0] = hashMove;
+                        principalVariationLengths[ply] = 1;
+                    }
+                    return score;
+                }
             }
         }
 
-        for (int i = 1; i < 4; i++) {
-            int columnNext = column + i;
-            int rowNext = row + i * rowDirection;
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestColumn = -1;
+        int searchedMoves = 0;
+        // The opponent's threats the player to move can play into, a move there is a block
+        long opponentThreats = threatExtensions || lateMoveReductions ? position.opponentWinningCells() & position.legalMoves() : 0;
+        // Extensions stop at twice the iteration depth, so forced lines cannot run away
+        boolean canExtend = threatExtensions && ply < 2 * iterationDepth && ply + depth < SearchLimits.MAX_DEPTH;
+
+        // Loop through the columns, most promising first
+        int moveCount = moveOrdering.orderMoves(position, ply, hashMove, root);
+        for (int index = 0; index < moveCount; index++) {
+            int column = moveOrdering.moveAt(ply, index);
+            // Moves that lose at once are never searched, unless every move does
+            if ((nonLosingMoves & position.columnMask(column)) == 0 && nonLosingMoves != 0) {
+                continue;
+            }
+            // On a symmetric root a move on the right is worth the same as its twin on the left
+            if (root && rootSymmetric && column > position.mirrorColumn(column)) {
+                continue;
+            }
 
-            if (columnNext >= 0 && columnNext < Connect4Game.getNoOfColumns() && rowNext >= 0 && rowNext < Connect4Game.getNoOfRows() && board[rowNext][columnNext] == piecePlayer) {
-                count++;
+            int bit = position.getFreeBit(column);
+            int player = position.getPlayerToMove();
+            boolean blocksThreat = (opponentThreats & (1L << bit)) != 0;
+            position.play(column);
+            evaluator.play(bit, player);
+            // After the move the mover is the opponent, so their playable winning cells are the new threats
+            boolean createsThreat = (threatExtensions || lateMoveReductions)
+                    && (position.opponentWinningCells() & position.legalMoves()) != 0;
+            boolean tactical = blocksThreat || createsThreat;
+            // The threat is extended and its forced block is not, so a threat and its block cost one ply together
+            int newDepth = canExtend && createsThreat ? depth : depth - 1;
+            int score;
+            if (searchedMoves == 0) {
+                score = -negamax(position, newDepth, -beta, -alpha);
             } else {
+                boolean reduce = lateMoveReductions && !root && !tactical
+                        && searchedMoves >= FIRST_REDUCED_MOVE && depth >= MIN_REDUCTION_DEPTH;
+                // Null window: only asks whether the move beats alpha
+                score = -negamax(position, reduce ? newDepth - 1 : newDepth, -alpha - 1, -alpha);
+                if (reduce && score > alpha && !aborted) {
+                    // The reduced search may have missed something, verify at full depth
+                    score = -negamax(position, newDepth, -alpha - 1, -alpha);
+                }
+                if (score > alpha && score < beta && !aborted) {
+                    score = -negamax(position, newDepth, -beta, -alpha);
+                }
+            }
+            searchedMoves++;
+            position.undo();
+            evaluator.undo(bit, player);
+            if (aborted) {
+                return bestScore;
+            }
+
+            // Update the best move and the line that follows it
+            if (score > bestScore) {
+                bestScore = score;
+                bestColumn = column;
+                principalVariations[ply][0] = column;
+                System.arraycopy(principalVariations[ply + 1], 0, principalVariations[ply], 1, principalVariationLengths[ply + 1]);
+                principalVariationLengths[ply] = principalVariationLengths[ply + 1] + 1;
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) {
+                cutoffs++;
+                if (searchedMoves == 1) {
+                    firstMoveCutoffs++;
+                }
+                moveOrdering.recordCutoff(position, ply, column, depth);
                 break;
             }
         }
-        return count >= 4;
+
+        int bound;
+        if (bestScore <= originalAlpha) {
+            bound = TranspositionTable.UPPER_BOUND;
+        } else if (bestScore >= beta) {
+            bound = TranspositionTable.LOWER_BOUND;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        int storedColumn = mirrored && bestColumn >= 0 ? position.mirrorColumn(bestColumn) : bestColumn;
+        transpositionTable.store(key, bestScore, depth, bound, storedColumn);
+        return bestScore;
     }
 
     /**
-     * Checks if there are at least 4 consecutive pieces of the same player
-     * horizontally on the game board.
+     * Finds a move that wins at once for the player to move.
      *
-     * @param  board         a 2D array representing the game board
-     * @param  column        the column index of the piece being checked
-     * @param  row           the row index of the piece being checked
-     * @param  piecePlayer   the player identifier for the piece being checked
+     * @param  position  the position to look at
      *
-     * @return               true if there are at least 4 consecutive pieces of the same player horizontally, false otherwise
+     * @return           the leftmost winning column, or -1 if no move wins
      */
-    private boolean checkHorizontal(int[][] board, int column, int row, int piecePlayer) {
-        int count = 1;
-        for (int i = column - 1; i >= 0 && board[row][i] == piecePlayer; i--) {
-            count++;
-        }
-
-        for (int i = column + 1; i < Connect4Game.getNoOfColumns() && board[row][i] == piecePlayer; i++) {
-            count++;
-        }
-
-        return count >= 4;
+    private static int winningColumn(BitBoard position) {
+        long wins = position.winningCells(position.getPlayerMask(position.getPlayerToMove())) & position.legalMoves();
+        return wins == 0 ? -1 : columnOf(position, wins);
     }
 
     /**
-     * Checks if there are four consecutive pieces of the same player vertically in the board.
+     * Finds the column of a cell.
      *
-     * @param  board         a 2D array representing the game board
-     * @param  column        the column index of the current piece
-     * @param  row           the row index of the current piece
-     * @param  piecePlayer   the player identifier of the current piece
+     * @param  position  the position the cell belongs to
+     * @param  cells     the cell, or several cells of which the leftmost is wanted
      *
-     * @return               true if there are four consecutive pieces vertically, false otherwise
+     * @return           the leftmost column holding one of the cells, or -1 if the mask is empty
      */
-    private boolean checkVertical(int[][] board, int column, int row, int piecePlayer) {
-        int count = 1;
-        for (int i = row - 1; i >= 0 && board[i][column] == piecePlayer; i--) {
-            count++;
-        }
-
-        for (int i = row; i < Connect4Game.getNoOfRows() && board[i][column] == piecePlayer; i++) {
-            count++;
+    private static int columnOf(BitBoard position, long cells) {
+        for (int column = 0; column < position.getColumns(); column++) {
+            if ((cells & position.columnMask(column)) != 0) {
+                return column;
+            }
         }
-        return count >= 4;
+        return -1;
     }
 
     /**
-     * Checks if the game board is in a draw state.
+     * Creates the move ordering tables, once per board width.
      *
-     * @param  board  a 2D array representing the game board
-     *
-     * @return        true if the game board is in a draw state, false otherwise
+     * @param  position  a position with the board size to prepare for
      */
-    private boolean checkDraw(int[][] board) {
-        for (int column = 0; column < Connect4Game.getNoOfColumns(); column++) {
-            if (!isColumnFull(board, column)) {
-                return false;
-            }
+    private void prepareMoveOrdering(BitBoard position) {
+        if (moveOrdering == null || moveOrdering.getColumns() != position.getColumns()) {
+            moveOrdering = new MoveOrdering(position.getColumns(), SearchLimits.MAX_DEPTH, columnOffset);
         }
-        return true;
     }
-
 }
@@ -0,0 +1,155 @@
+package com.connect4.connect4javafx;
+
+/**
+ * Orders the moves of a search node so that alpha-beta finds its cutoffs early.
+ * Moves are tried in this order: the hash move, the two killer moves of the ply, then the
+ * rest by their history score. Ties keep a static centre-out order, as centre columns take
+ * part in the most lines. Move lists are preallocated per ply, so ordering never allocates.
+ * One instance belongs to one search thread.
+ */
+public class MoveOrdering {
+    private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int FIRST_KILLER_SCORE = Integer.MAX_VALUE - 1;
+    private static final int SECOND_KILLER_SCORE = Integer.MAX_VALUE - 2;
+    // History scores are halved once one passes this, far below the killer scores and any overflow
+    private static final int HISTORY_LIMIT = 1 << 24;
+    private final int columns;
+    private final int[] staticOrder;
+    private final int[][] moveLists;
+    private final int[][] moveScores;
+    private final int[][] killers;
+    private final int[][] history = new int[2][Long.SIZE];
+
+    /**
+     * Creates the move lists and heuristic tables for a board width.
+     *
+     * @param  columns       the number of columns of the board
+     * @param  maxPly        the deepest ply the search can reach
+     * @param  columnOffset  how far to rotate the static order, so parallel helpers differ
+     */
+    public MoveOrdering(int columns, int maxPly, int columnOffset) {
+        this.columns = columns;
+        this.staticOrder = new int[columns];
+        for (int i = 0; i < columns; i++) {
+            int centreOut = columns / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+            staticOrder[(i + columnOffset) % columns] = centreOut;
+        }
+        this.moveLists = new int[maxPly + 1][columns];
+        this.moveScores = new int[maxPly + 1][columns];
+        this.killers = new int[maxPly + 1][2];
+        clearKillers();
+    }
+
+    /**
+     * Fills the move list of a ply with the legal moves of a position, best first.
+     * At the root only the hash move and the static order are used, so the root order does
+     * not depend on what the history tables learned from earlier or parallel searches.
+     *
+     * @param  position  the position to generate moves for
+     * @param  ply       the distance from the root
+     * @param  hashMove  the best move from the transposition table, or -1
+     * @param  root      true if the position is the root of the search
+     *
+     * @return           the number of legal moves
+     */
+    public int orderMoves(BitBoard position, int ply, int hashMove, boolean root) {
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        int player = position.getPlayerToMove() - 1;
+        int count = 0;
+        for (int column : staticOrder) {
+            if (!position.canPlay(column)) {
+                continue;
+            }
+            int score;
+            if (column == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (root) {
+                score = 0;
+            } else if (column == killers[ply][0]) {
+                score = FIRST_KILLER_SCORE;
+            } else if (column == killers[ply][1]) {
+                score = SECOND_KILLER_SCORE;
+            } else {
+                score = history[player][position.getFreeBit(column)];
+            }
+            // Insertion sort, equal scores keep the static order
+            int index = count++;
+            while (index > 0 && scores[index - 1] < score) {
+                moves[index] = moves[index - 1];
+                scores[index] = scores[index - 1];
+                index--;
+            }
+            moves[index] = column;
+            scores[index] = score;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a move from the list filled by orderMoves.
+     *
+     * @param  ply    the distance from the root
+     * @param  index  the position of the move in the ordered list
+     *
+     * @return        the column of the move
+     */
+    public int moveAt(int ply, int index) {
+        return moveLists[ply][index];
+    }
+
+    /**
+     * Rewards a move that caused a beta cutoff.
+     * Must be called while the move is not on the board, as the cell is read from the position.
+     *
+     * @param  position  the position the move was played from
+     * @param  ply       the distance from the root
+     * @param  column    the column that caused the cutoff
+     * @param  depth     the remaining depth of the node
+     */
+    public void recordCutoff(BitBoard position, int ply, int column, int depth) {
+        if (killers[ply][0] != column) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = column;
+        }
+        int player = position.getPlayerToMove() - 1;
+        int cell = position.getFreeBit(column);
+        history[player][cell] += depth * depth;
+        if (history[player][cell] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * Prepares the tables for a new search: killers are cleared and history scores halved,
+     * so recent searches count more than old ones.
+     */
+    public void newSearch() {
+        clearKillers();
+        ageHistory();
+    }
+
+    private void ageHistory() {
+        for (int[] playerHistory : history) {
+            for (int cell = 0; cell < playerHistory.length; cell++) {
+                playerHistory[cell] >>= 1;
+            }
+        }
+    }
+
+    private void clearKillers() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = -1;
+            plyKillers[1] = -1;
+        }
+    }
+
+    /**
+     * Returns the number of columns the move lists were created for.
+     *
+     * @return  the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
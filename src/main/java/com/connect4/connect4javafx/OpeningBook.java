@@ -0,0 +1,152 @@
+package com.connect4.connect4javafx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only opening book, memory-mapped from a file written by OpeningBookGenerator.
+ * The file holds a small header followed by one long per position, sorted ascending as unsigned numbers.
+ * Each long packs the mirror-normalized position key (see BitBoard.getKey) in its upper bits
+ * and the best column plus one in its low 8 bits, so a lookup is a binary search over the
+ * mapped file and never reads the whole book into the heap.
+ */
+public class OpeningBook {
+    static final int MAGIC = 0x43344248; // "C4BH"
+    static final int HEADER_BYTES = 4 * Integer.BYTES;
+    static final int MOVE_BITS = 8;
+    private static final String BOOK_PROPERTY = "connect4.openingBook";
+    private final int columns;
+    private final int rows;
+    private final int maxPly;
+    private final LongBuffer entries;
+
+    private OpeningBook(int columns, int rows, int maxPly, LongBuffer entries) {
+        this.columns = columns;
+        this.rows = rows;
+        this.maxPly = maxPly;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps an opening book file into memory.
+     *
+     * @param  file         the book file
+     *
+     * @return              the opening book
+     *
+     * @throws IOException  if the file cannot be read or is not an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not an opening book");
+            }
+            int columns = buffer.getInt(4);
+            int rows = buffer.getInt(8);
+            int maxPly = buffer.getInt(12);
+            LongBuffer entries = buffer.position(HEADER_BYTES).slice().asLongBuffer();
+            return new OpeningBook(columns, rows, maxPly, entries);
+        }
+    }
+
+    /**
+     * Opens the book named by the connect4.openingBook system property, if there is one.
+     *
+     * @return  the opening book, or null if the property is not set or the file cannot be read
+     */
+    public static OpeningBook openDefault() {
+        String fileName = System.getProperty(BOOK_PROPERTY);
+        if (fileName == null || !Files.isReadable(Path.of(fileName))) {
+            return null;
+        }
+        try {
+            return open(Path.of(fileName));
+        } catch (IOException e) {
+            System.err.println("Error loading opening book " + fileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Looks up the best move for a position.
+     *
+     * @param  position  the position to look up
+     *
+     * @return           the best column for the player to move, or -1 if the position is not in the book
+     */
+    public int lookup(BitBoard position) {
+        if (position.getColumns() != columns || position.getRows() != rows || position.getStoneCount() > maxPly) {
+            return -1;
+        }
+        long key = position.getKey();
+        long mirroredKey = position.getMirroredKey();
+        boolean mirrored = mirroredKey < key;
+        long canonicalKey = mirrored ? mirroredKey : key;
+
+        int low = 0;
+        int high = entries.limit() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            // Keys fill up to 56 bits, so they are never negative once shifted back down
+            long entryKey = entries.get(middle) >>> MOVE_BITS;
+            if (entryKey < canonicalKey) {
+                low = middle + 1;
+            } else if (entryKey > canonicalKey) {
+                high = middle - 1;
+            } else {
+                int column = (int) (entries.get(middle) & ((1 << MOVE_BITS) - 1)) - 1;
+                return mirrored ? columns - 1 - column : column;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Packs a book entry.
+     *
+     * @param  canonicalKey  the mirror-normalized key of the position
+     * @param  column        the best column in the canonical orientation
+     *
+     * @return               the packed entry
+     */
+    static long entry(long canonicalKey, int column) {
+        return (canonicalKey << MOVE_BITS) | (column + 1);
+    }
+
+    /**
+     * Writes the book header into a buffer.
+     *
+     * @param  buffer   the buffer to write to
+     * @param  columns  the number of columns of the board
+     * @param  rows     the number of rows of the board
+     * @param  maxPly   the deepest ply stored in the book
+     */
+    static void writeHeader(ByteBuffer buffer, int columns, int rows, int maxPly) {
+        buffer.putInt(MAGIC).putInt(columns).putInt(rows).putInt(maxPly);
+    }
+
+    /**
+     * Returns the number of positions in the book.
+     *
+     * @return  the number of positions
+     */
+    public int size() {
+        return entries.limit();
+    }
+
+    /**
+     * Returns the deepest ply stored in the book.
+     *
+     * @return  the number of stones of the deepest book positions
+     */
+    public int getMaxPly() {
+        return maxPly;
+    }
+}
@@ -0,0 +1,146 @@
+package com.connect4.connect4javafx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Offline tool that writes an opening book.
+ * Every position reachable within the given number of plies (up to left-right mirroring) is
+ * searched to a fixed depth, and its best move is stored under its canonical key.
+ * Usage: OpeningBookGenerator [file] [maxPly] [searchDepth] [columns] [rows]
+ */
+public class OpeningBookGenerator {
+    private final int maxPly;
+    private final MinimaxAgent agent = new MinimaxAgent();
+    private final Set<Long> visited = new HashSet<>();
+    private long[] entries = new long[1024];
+    private int entryCount;
+
+    public OpeningBookGenerator(int maxPly, int searchDepth) {
+        this.maxPly = maxPly;
+        agent.setSearchLimits(SearchLimits.depth(searchDepth));
+    }
+
+    /**
+     * Generates the book from the empty board and writes it to a file.
+     *
+     * @param  file         the book file to write
+     * @param  boardSpec    the size of the board
+     *
+     * @throws IOException  if the file cannot be written
+     */
+    public void generate(Path file, BoardSpec boardSpec) throws IOException {
+        int columns = boardSpec.columns();
+        int rows = boardSpec.rows();
+        if (columns * (rows + 1) > Long.SIZE - OpeningBook.MOVE_BITS) {
+            throw new IllegalArgumentException("A " + boardSpec + " board is too large for a book key");
+        }
+        // Player numbers do not matter, book keys are relative to the player to move
+        visit(new BitBoard(boardSpec, 1));
+        write(file, boardSpec, maxPly, Arrays.copyOf(entries, entryCount));
+    }
+
+    /**
+     * Sorts book entries and writes them to a book file.
+     *
+     * @param  file         the book file to write
+     * @param  boardSpec    the size of the board
+     * @param  maxPly       the deepest ply stored in the book
+     * @param  entries      the packed entries, see OpeningBook.entry, sorted in place
+     *
+     * @throws IOException  if the file cannot be written
+     */
+    static void write(Path file, BoardSpec boardSpec, int maxPly, long[] entries) throws IOException {
+        sortUnsigned(entries);
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + entries.length * Long.BYTES);
+        OpeningBook.writeHeader(buffer, boardSpec.columns(), boardSpec.rows(), maxPly);
+        buffer.asLongBuffer().put(entries);
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Adds a position and every position after it, depth first.
+     *
+     * @param  position  the position to add
+     */
+    private void visit(BitBoard position) {
+        long key = position.getKey();
+        long mirroredKey = position.getMirroredKey();
+        long canonicalKey = Math.min(key, mirroredKey);
+        if (position.getStoneCount() > maxPly || position.isFull() || !visited.add(canonicalKey)) {
+            return;
+        }
+
+        int column = agent.findBestColumn(position);
+        if (column < 0) {
+            return;
+        }
+        add(OpeningBook.entry(canonicalKey, key == canonicalKey ? column : position.getColumns() - 1 - column));
+        if (visited.size() % 10_000 == 0) {
+            System.out.println(visited.size() + " positions searched...");
+        }
+
+        for (int next = 0; next < position.getColumns(); next++) {
+            // Positions after a win are never reached in a game
+            if (position.canPlay(next) && !position.isWinningMove(next)) {
+                position.play(next);
+                visit(position);
+                position.undo();
+            }
+        }
+    }
+
+    /**
+     * Sorts book entries as unsigned numbers, the order OpeningBook.lookup searches in.
+     * A 56-bit key shifted above the move sets the sign bit, and a signed sort would put it first.
+     * Flipping the sign bit maps unsigned order onto signed order.
+     *
+     * @param  entries  the entries to sort in place
+     */
+    static void sortUnsigned(long[] entries) {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(entries);
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] ^= Long.MIN_VALUE;
+        }
+    }
+
+    private void add(long entry) {
+        if (entryCount == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[entryCount++] = entry;
+    }
+
+    /**
+     * Generates an opening book from the command line.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : "opening-book.bin");
+        int maxPly = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int searchDepth = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        int columns = args.length > 3 ? Integer.parseInt(args[3]) : 7;
+        int rows = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+
+        long startTime = System.currentTimeMillis();
+        OpeningBookGenerator generator = new OpeningBookGenerator(maxPly, searchDepth);
+        generator.generate(file, new BoardSpec(columns, rows));
+        System.out.println("Wrote " + generator.entryCount + " positions to " + file
+                + " in " + (System.currentTimeMillis() - startTime) / 1000 + " s");
+    }
+}
@@ -66,7 +66,8 @@ public abstract class Player {
      *                 or -1 if the column is full
      */
     public int findLowestPlayableRow(int[][] board, int column) {
-        for (int row = Connect4Game.getNoOfRows() - 1; row >= 0; row--) {
+        // The board array has the game's own number of rows
+        for (int row = board.length - 1; row >= 0; row--) {
             if (board[row][column] == 0) {
                 return row + 1;  // Return the row index (1-based) where the token can be placed
             }
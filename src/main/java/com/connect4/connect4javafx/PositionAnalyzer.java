@@ -0,0 +1,304 @@
+package com.connect4.connect4javafx;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scores a large set of positions on all cores and writes one result line per position.
+ * The input is read as a stream, either a text file with one standard-board position per line
+ * as 1-based column digits (such as "4453"), or a GameJournal directory, in which case the
+ * position before every move of every game is analyzed, on the game's own board and with the
+ * game's first player. Columns past the ninth are written as the characters after '9'.
+ * Neither input is ever loaded whole, so inputs may be far larger than the heap.
+ * Positions are handed to a fixed pool of workers, each with its own engine. Their results
+ * are queued in input order, at most a window of positions ahead of the writer, so memory
+ * stays bounded however fast the input can be read, and the output is in input order.
+ * Each output line is tab-separated: the moves, the best column (1-based, or "none" if the
+ * game is over), the score for the player to move, the depth and the number of nodes.
+ * Lines for positions that cannot be played hold the moves and an error message instead.
+ * Because line n of the output always belongs to position n of the input, an interrupted run
+ * is resumed by running it again: complete lines are kept, a line cut short is dropped, and the
+ * analysis carries on with the first position without a line.
+ * Usage: PositionAnalyzer input output [engineSpec] [threads] [window]
+ */
+public class PositionAnalyzer {
+    private static final BoardSpec BOARD_SPEC = BoardSpec.STANDARD;
+    private static final String DEFAULT_ENGINE = "depth=8,hash=4";
+    private static final int WINDOW_PER_THREAD = 64;
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final Future<String> END_OF_INPUT = CompletableFuture.completedFuture(null);
+    private final ThreadLocal<MinimaxAgent> agents;
+
+    /**
+     * A position to analyze.
+     *
+     * @param moves        the moves of the position, one character per move, '1' for the first column
+     * @param boardSpec    the size of the board
+     * @param firstPlayer  the player who made the first move (1 or 2)
+     */
+    record Position(String moves, BoardSpec boardSpec, int firstPlayer) {
+    }
+
+    public PositionAnalyzer(EngineConfig engine) {
+        // Every worker thread gets its own engine, engines are not thread-safe
+        this.agents = ThreadLocal.withInitial(engine::createAgent);
+    }
+
+    /**
+     * Analyzes every position of the input that has no line in the output yet.
+     *
+     * @param  input        a text file of positions or a game journal directory
+     * @param  output       the results file, appended to if it exists
+     * @param  threads      the number of workers
+     * @param  window       the most positions that may be analyzed ahead of the output
+     *
+     * @return              the number of positions analyzed by this run
+     *
+     * @throws IOException  if the input cannot be read or the output cannot be written
+     */
+    public long run(Path input, Path output, int threads, int window) throws IOException, InterruptedException {
+        long done = resumePoint(output);
+        if (done > 0) {
+            System.out.println("Resuming after " + done + " positions");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(window);
+        long startTime = System.nanoTime();
+        long analyzed = 0;
+        Thread writer = null;
+        try (BufferedReader textInput = Files.isDirectory(input) ? null : Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter results = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            Iterator<Position> positions = textInput != null
+                    ? textInput.lines().map(line -> new Position(line.trim(), BOARD_SPEC, 1)).iterator()
+                    : journalPositions(input);
+            for (long skipped = 0; skipped < done && positions.hasNext(); skipped++) {
+                positions.next();
+            }
+            WriterTask writerTask = new WriterTask(pending, results, startTime);
+            writer = new Thread(writerTask, "analyzer-writer");
+            writer.start();
+            while (positions.hasNext() && writerTask.failure == null) {
+                Position position = positions.next();
+                // Blocks while the window is full, until the writer has taken the oldest result
+                pending.put(pool.submit(() -> analyze(position)));
+                analyzed++;
+            }
+            pending.put(END_OF_INPUT);
+            writer.join();
+            writer = null;
+            if (writerTask.failure != null) {
+                throw writerTask.failure;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (writer != null) {
+                writer.interrupt();
+            }
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Analyzed %d positions in %.1f s, %.0f positions/s%n", analyzed, seconds, analyzed / seconds);
+        return analyzed;
+    }
+
+    /**
+     * Takes results from the queue in input order and writes them.
+     */
+    private static final class WriterTask implements Runnable {
+        private final BlockingQueue<Future<String>> pending;
+        private final BufferedWriter results;
+        private final long startTime;
+        private volatile IOException failure;
+
+        private WriterTask(BlockingQueue<Future<String>> pending, BufferedWriter results, long startTime) {
+            this.pending = pending;
+            this.results = results;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void run() {
+            long written = 0;
+            try {
+                Future<String> result;
+                while ((result = pending.take()) != END_OF_INPUT) {
+                    results.write(result.get());
+                    results.newLine();
+                    written++;
+                    if (written % PROGRESS_INTERVAL == 0) {
+                        // Flushed lines survive an interruption, so a resumed run does not repeat them
+                        results.flush();
+                        double seconds = (System.nanoTime() - startTime) / 1e9;
+                        System.out.printf("%d positions, %.0f positions/s...%n", written, written / seconds);
+                    }
+                }
+                results.flush();
+            } catch (IOException e) {
+                failure = e;
+                discardRemaining();
+            } catch (ExecutionException e) {
+                failure = new IOException("Analysis failed", e.getCause());
+                discardRemaining();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Keeps taking results after a failure, so the reader is never left blocked on a full queue.
+         */
+        private void discardRemaining() {
+            try {
+                while (pending.take() != END_OF_INPUT) {
+                    // Nothing more is written
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Searches one position on the calling worker's engine.
+     *
+     * @param  input  the position to search
+     *
+     * @return        the result line
+     */
+    private String analyze(Position input) {
+        String moves = input.moves();
+        BitBoard position = new BitBoard(input.boardSpec(), input.firstPlayer());
+        for (int i = 0; i < moves.length(); i++) {
+            int column = moves.charAt(i) - '1';
+            if (column < 0 || column >= input.boardSpec().columns() || !position.canPlay(column)) {
+                return moves + "\terror illegal move at ply " + (i + 1);
+            }
+            if (position.isWinningMove(column)) {
+                return moves + (i == moves.length() - 1 ? "\tnone\t-\t0\t0" : "\terror moves continue after a win at ply " + (i + 1));
+            }
+            position.play(column);
+        }
+        if (position.isFull()) {
+            return moves + "\tnone\t0\t0\t0";
+        }
+        MinimaxAgent agent = agents.get();
+        // Every result is independent of which positions the worker searched before
+        agent.newGame();
+        SearchReport report = agent.search(position);
+        return moves + '\t' + (report.move() + 1) + '\t' + report.score() + '\t' + report.depth() + '\t' + report.nodes();
+    }
+
+    /**
+     * Counts the complete lines of an earlier run's output and cuts off a line that was only partly written.
+     *
+     * @param  output       the results file
+     *
+     * @return              the number of positions already analyzed
+     *
+     * @throws IOException  if the file cannot be read or truncated
+     */
+    private static long resumePoint(Path output) throws IOException {
+        if (!Files.exists(output)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            long lines = 0;
+            long completeLength = 0;
+            long offset = 0;
+            int read;
+            while ((read = channel.read(buffer)) > 0) {
+                buffer.flip();
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lines++;
+                        completeLength = offset + i + 1;
+                    }
+                }
+                offset += read;
+                buffer.clear();
+            }
+            channel.truncate(completeLength);
+            return lines;
+        }
+    }
+
+    /**
+     * Lists the position before every move of every game in a journal, without loading the journal.
+     * Each position keeps the board size and the first player of its game.
+     *
+     * @param  directory    the journal directory
+     *
+     * @return              the positions
+     *
+     * @throws IOException  if the journal cannot be opened
+     */
+    private static Iterator<Position> journalPositions(Path directory) throws IOException {
+        GameJournalReader.Cursor cursor = new GameJournalReader(directory).cursor();
+        return new Iterator<>() {
+            private final StringBuilder moves = new StringBuilder();
+            private BoardSpec boardSpec;
+            private int firstPlayer;
+            private int ply;
+            private boolean hasGame;
+
+            @Override
+            public boolean hasNext() {
+                while (!hasGame || ply >= cursor.moveCount()) {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    hasGame = true;
+                    boardSpec = cursor.boardSpec();
+                    firstPlayer = cursor.firstPlayer();
+                    ply = 0;
+                    moves.setLength(0);
+                }
+                return true;
+            }
+
+            @Override
+            public Position next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Position position = new Position(moves.toString(), boardSpec, firstPlayer);
+                moves.append((char) ('1' + cursor.move(ply++)));
+                return position;
+            }
+        };
+    }
+
+    /**
+     * Runs the analyzer from the command line.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: PositionAnalyzer input output [engineSpec] [threads] [window]");
+            return;
+        }
+        EngineConfig engine = EngineConfig.parse(args.length > 2 ? args[2] : DEFAULT_ENGINE);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int window = args.length > 4 ? Integer.parseInt(args[4]) : threads * WINDOW_PER_THREAD;
+        new PositionAnalyzer(engine).run(Path.of(args[0]), Path.of(args[1]), threads, window);
+    }
+}
@@ -0,0 +1,266 @@
+package com.connect4.connect4javafx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the engine as a standalone process that talks a line-based protocol over stdin and stdout,
+ * in the spirit of UCI. It uses no JavaFX or FXGL classes, so it starts without a GUI toolkit:
+ *     java -cp target/classes com.connect4.connect4javafx.ProtocolEngine
+ * Commands:
+ *     isready                        answered with "readyok", also during a search
+ *     newgame                        forgets everything learned in earlier games
+ *     position [moves]               sets up the empty board followed by the moves, one 1-based
+ *                                    column digit per move, such as "position 4453"
+ *     go [depth N | movetime N]      searches the position, streaming an info line per completed
+ *                                    iteration, and ends with "bestmove C" or "bestmove none"
+ *     stop                           ends the search early, it still answers with a bestmove
+ *     quit                           stops any search and exits, at the end of the input
+ *                                    a running search is finished first
+ * Other commands sent during a search wait until it has answered with its bestmove.
+ * Info lines look like "info depth 9 score cp 12 nodes 52814 nps 910000 time 58 pv 4 4 3 5", the
+ * pv being the best line found, the engine's move first. A proven result is given as
+ * "score win N" or "score loss N", N being the plies left to the end.
+ */
+public class ProtocolEngine {
+    private static final BoardSpec BOARD_SPEC = BoardSpec.STANDARD;
+    private final MinimaxAgent agent = new MinimaxAgent();
+    private final PrintStream out;
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "protocol-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private BitBoard position = new BitBoard(BOARD_SPEC, 1);
+    private Future<?> search;
+    // The stop token of the last go, a stop that comes in before its search starts is never lost
+    private volatile AtomicBoolean stopToken = new AtomicBoolean();
+
+    public ProtocolEngine(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Reads and executes commands until "quit" or the end of the input.
+     *
+     * @param  input        the stream the commands are read from
+     *
+     * @throws IOException  if the input cannot be read
+     */
+    public void run(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!execute(line.trim())) {
+                stopToken.set(true);
+                break;
+            }
+        }
+        // At the end of the input a running search is finished, after quit it is stopped
+        searchThread.shutdown();
+        try {
+            searchThread.awaitTermination(1, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executes a single command.
+     *
+     * @param  line  the command line
+     *
+     * @return       false if the engine should exit, true otherwise
+     */
+    private boolean execute(String line) {
+        String[] words = line.split("\\s+");
+        switch (words[0]) {
+            case "" -> {
+            }
+            case "isready" -> send("readyok");
+            case "newgame" -> {
+                awaitSearch();
+                agent.newGame();
+            }
+            case "position" -> {
+                awaitSearch();
+                setPosition(words.length > 1 ? words[1] : "");
+            }
+            case "go" -> {
+                awaitSearch();
+                go(words);
+            }
+            case "stop" -> stopToken.set(true);
+            case "quit" -> {
+                return false;
+            }
+            default -> send("info string error unknown command " + words[0]);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the position with the empty board followed by the given moves.
+     * The position is left unchanged if any move is illegal or comes after the end of the game.
+     *
+     * @param  moves  one 1-based column digit per move
+     */
+    private void setPosition(String moves) {
+        BitBoard newPosition = new BitBoard(BOARD_SPEC, 1);
+        for (int i = 0; i < moves.length(); i++) {
+            int column = moves.charAt(i) - '1';
+            if (column < 0 || column >= BOARD_SPEC.columns() || !newPosition.canPlay(column)) {
+                send("info string error illegal move " + moves.charAt(i) + " at ply " + (i + 1));
+                return;
+            }
+            if (newPosition.isWinningMove(column) && i < moves.length() - 1) {
+                send("info string error moves continue after the game is won at ply " + (i + 1));
+                return;
+            }
+            newPosition.play(column);
+        }
+        position = newPosition;
+    }
+
+    /**
+     * Starts searching the current position in the background.
+     *
+     * @param  words  the words of the go command
+     */
+    private void go(String[] words) {
+        SearchLimits limits;
+        try {
+            limits = parseLimits(words);
+        } catch (IllegalArgumentException e) {
+            send("info string error " + e.getMessage());
+            return;
+        }
+        BitBoard root = new BitBoard(position);
+        AtomicBoolean token = new AtomicBoolean();
+        stopToken = token;
+        search = searchThread.submit(() -> search(root, limits, token));
+    }
+
+    private static SearchLimits parseLimits(String[] words) {
+        if (words.length == 1) {
+            return SearchLimits.depth(8);
+        }
+        if (words.length != 3) {
+            throw new IllegalArgumentException("expected go depth N or go movetime N");
+        }
+        return switch (words[1]) {
+            case "depth" -> SearchLimits.depth(Integer.parseInt(words[2]));
+            case "movetime" -> SearchLimits.moveTime(Long.parseLong(words[2]));
+            default -> throw new IllegalArgumentException("unknown go limit " + words[1]);
+        };
+    }
+
+    /**
+     * Searches a position on the search thread and reports the best move.
+     *
+     * @param  root       the position to search
+     * @param  limits     the depth and time limits of the search
+     * @param  stopToken  the stop token of the go command
+     */
+    private void search(BitBoard root, SearchLimits limits, AtomicBoolean stopToken) {
+        if (root.isFull() || isGameOver(root)) {
+            send("bestmove none");
+            return;
+        }
+        int stoneCount = root.getStoneCount();
+        agent.setSearchLimits(limits);
+        agent.setStopToken(stopToken);
+        agent.setIterationListener((depth, score, move, nodes, elapsedNanos) ->
+                send(info(depth, score, stoneCount, nodes, elapsedNanos, agent.getPrincipalVariation())));
+        SearchReport report = agent.search(root);
+        if (report.source() != SearchReport.Source.SEARCH) {
+            send(info(report.depth(), report.score(), stoneCount, report.nodes(), report.elapsedNanos(),
+                    report.principalVariation()));
+        }
+        send(report.move() < 0 ? "bestmove none" : "bestmove " + (report.move() + 1));
+    }
+
+    private static String info(int depth, int score, int stoneCount, long nodes, long elapsedNanos, int[] principalVariation) {
+        long nodesPerSecond = elapsedNanos == 0 ? 0 : nodes * 1_000_000_000 / elapsedNanos;
+        StringBuilder line = new StringBuilder("info depth ").append(depth)
+                .append(" score ").append(formatScore(score, stoneCount))
+                .append(" nodes ").append(nodes)
+                .append(" nps ").append(nodesPerSecond)
+                .append(" time ").append(elapsedNanos / 1_000_000)
+                .append(" pv");
+        for (int column : principalVariation) {
+            line.append(' ').append(column + 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Formats a search score, writing proven results as the number of plies to the end of the game.
+     *
+     * @param  score       the score for the player to move
+     * @param  stoneCount  the number of stones of the searched position
+     *
+     * @return             "cp N", "win N" or "loss N"
+     */
+    private static String formatScore(int score, int stoneCount) {
+        if (Math.abs(score) <= MinimaxAgent.WIN_SCORE - SearchLimits.MAX_DEPTH) {
+            return "cp " + score;
+        }
+        // A win is scored WIN_SCORE minus the number of stones before the winning move
+        int pliesToEnd = MinimaxAgent.WIN_SCORE - Math.abs(score) - stoneCount + 1;
+        return (score > 0 ? "win " : "loss ") + pliesToEnd;
+    }
+
+    /**
+     * Checks whether the last move of a position won the game.
+     *
+     * @param  root  the position
+     *
+     * @return       true if the player who just moved has four in a row
+     */
+    private static boolean isGameOver(BitBoard root) {
+        int lastPlayer = root.getPlayerToMove() == 1 ? 2 : 1;
+        return root.hasWon(lastPlayer);
+    }
+
+    /**
+     * Waits until the running search, if any, has sent its bestmove.
+     */
+    private void awaitSearch() {
+        if (search == null) {
+            return;
+        }
+        try {
+            search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            send("info string error search failed: " + e.getCause());
+        }
+        search = null;
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs the engine on stdin and stdout.
+     */
+    public static void main(String[] args) throws IOException {
+        new ProtocolEngine(System.out).run(System.in);
+    }
+}
@@ -0,0 +1,47 @@
+package com.connect4.connect4javafx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event for each move search, committed by MinimaxAgent with the figures of its SearchReport.
+ * Record with: java -XX:StartFlightRecording ...
+ */
+@Name("com.connect4.Search")
+@Label("Engine Search")
+@Category({"Connect4", "Engine"})
+@Description("A move search of the minimax agent")
+public class SearchEvent extends Event {
+    @Label("Move")
+    int move;
+
+    @Label("Score")
+    int score;
+
+    @Label("Source")
+    String source;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Leaf Evaluations")
+    long leafEvaluations;
+
+    @Label("Beta Cutoffs")
+    long betaCutoffs;
+
+    @Label("First Move Cutoff Rate")
+    double firstMoveCutoffRate;
+
+    @Label("Table Hits")
+    long tableHits;
+
+    @Label("Nodes Per Second")
+    double nodesPerSecond;
+}
@@ -0,0 +1,29 @@
+package com.connect4.connect4javafx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event for each completed iteration of an iterative deepening search.
+ * Its duration is the time the iteration took.
+ */
+@Name("com.connect4.SearchIteration")
+@Label("Engine Search Iteration")
+@Category({"Connect4", "Engine"})
+@Description("One completed iteration of the minimax agent's iterative deepening")
+public class SearchIterationEvent extends Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Score")
+    int score;
+
+    @Label("Best Move")
+    int move;
+}
@@ -0,0 +1,52 @@
+package com.connect4.connect4javafx;
+
+/**
+ * Limits for a single move search.
+ *
+ * @param maxDepth        the deepest iteration to search, in plies
+ * @param moveTimeMillis  the wall-clock budget for the move, or 0 for no time limit
+ */
+public record SearchLimits(int maxDepth, long moveTimeMillis) {
+    /** The deepest search that can ever be needed, one ply per cell of a 64-bit board. */
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Search depth must be at least 1, was " + maxDepth);
+        }
+        if (moveTimeMillis < 0) {
+            throw new IllegalArgumentException("Move time cannot be negative, was " + moveTimeMillis);
+        }
+    }
+
+    /**
+     * Returns limits that search to a fixed depth with no time limit.
+     *
+     * @param  depth  the depth to search to, in plies
+     *
+     * @return        the search limits
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0);
+    }
+
+    /**
+     * Returns limits that search as deep as the given time allows.
+     *
+     * @param  millis  the wall-clock budget for the move
+     *
+     * @return         the search limits
+     */
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits(MAX_DEPTH, millis);
+    }
+
+    /**
+     * Checks whether these limits include a time budget.
+     *
+     * @return  true if the search has a deadline, false otherwise
+     */
+    public boolean hasDeadline() {
+        return moveTimeMillis > 0;
+    }
+}
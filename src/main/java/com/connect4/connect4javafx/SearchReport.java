@@ -0,0 +1,37 @@
+package com.connect4.connect4javafx;
+
+/**
+ * Statistics of a single move search, returned alongside the move by MinimaxAgent.search.
+ * Counters include the work of the parallel helpers.
+ *
+ * @param move                 the column chosen, or -1 if there was no legal move
+ * @param score                the score of the move for the player to move, 0 for book moves
+ * @param source               where the move came from
+ * @param depth                the deepest iteration completed, 0 for book and solver moves
+ * @param nodes                the number of nodes visited
+ * @param leafEvaluations      the number of positions scored by the evaluator
+ * @param betaCutoffs          the number of nodes left early after a beta cutoff
+ * @param firstMoveCutoffRate  the share of beta cutoffs caused by the first move tried
+ * @param tableHits            the number of transposition table lookups that found their position
+ * @param elapsedNanos         the wall-clock time of the whole search
+ * @param iterationNanos       the wall-clock time of each completed iteration, depth 1 first
+ * @param principalVariation   the best line found, the move first, then the expected replies
+ */
+public record SearchReport(int move, int score, Source source, int depth, long nodes, long leafEvaluations,
+                           long betaCutoffs, double firstMoveCutoffRate, long tableHits, long elapsedNanos,
+                           long[] iterationNanos, int[] principalVariation) {
+    public enum Source {
+        BOOK,
+        SOLVER,
+        SEARCH
+    }
+
+    /**
+     * Returns the search speed.
+     *
+     * @return  the number of nodes visited per second, or 0 if no time was measured
+     */
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+}
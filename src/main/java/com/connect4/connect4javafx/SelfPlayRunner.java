@@ -0,0 +1,259 @@
+package com.connect4.connect4javafx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays two engine configurations against each other without any user interface, on all cores.
+ * Games come in pairs: both games of a pair start from the same random opening, with the
+ * engines swapping sides, so neither engine profits from a lucky opening or from moving first.
+ * Each game is written to the results file as soon as it ends, one tab-separated line with the
+ * game number, the engine that moved first, the winner, the moves and the time of each searched move.
+ * Besides the result, the CPU time and nodes each engine spent per move are reported, so that
+ * search features can be judged by the strength they buy per CPU-second.
+ * Usage: SelfPlayRunner games engineA engineB [resultsFile] [threads] [openingPlies]
+ * where an engine is a spec such as "depth=8,eval=window" (see EngineConfig).
+ */
+public class SelfPlayRunner {
+    private static final BoardSpec BOARD_SPEC = BoardSpec.STANDARD;
+    private static final int PROGRESS_INTERVAL = 100;
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private final EngineConfig engineA;
+    private final EngineConfig engineB;
+    private final int openingPlies;
+    private final long seed;
+    private final ThreadLocal<MinimaxAgent[]> agents;
+    private final AtomicLong winsA = new AtomicLong();
+    private final AtomicLong draws = new AtomicLong();
+    private final AtomicLong winsB = new AtomicLong();
+    private final AtomicLong[] searchNanos = {new AtomicLong(), new AtomicLong()};
+    private final AtomicLong[] searchedMoves = {new AtomicLong(), new AtomicLong()};
+    private final AtomicLong[] searchCpuNanos = {new AtomicLong(), new AtomicLong()};
+    private final AtomicLong[] searchNodes = {new AtomicLong(), new AtomicLong()};
+    private BufferedWriter results;
+
+    /**
+     * The outcome of one game.
+     *
+     * @param first      "A" or "B", the engine that moved first
+     * @param winner     "A", "B" or "draw"
+     * @param moves      the 1-based columns of all moves, the opening included
+     * @param moveNanos  the search time of each move after the opening
+     */
+    private record GameResult(String first, String winner, String moves, long[] moveNanos) {
+    }
+
+    public SelfPlayRunner(EngineConfig engineA, EngineConfig engineB, int openingPlies, long seed) {
+        this.engineA = engineA;
+        this.engineB = engineB;
+        this.openingPlies = openingPlies;
+        this.seed = seed;
+        // Every worker thread gets its own pair of engines, engines are not thread-safe
+        this.agents = ThreadLocal.withInitial(() -> new MinimaxAgent[]{engineA.createAgent(), engineB.createAgent()});
+    }
+
+    /**
+     * Plays the match and streams every game to the results file.
+     *
+     * @param  games        the number of games, rounded up to an even number so every opening is played from both sides
+     * @param  threads      the number of games played at the same time
+     * @param  resultsFile  the file the games are written to
+     *
+     * @return              the Elo difference of engine A over engine B
+     *
+     * @throws IOException  if the results file cannot be written
+     */
+    public EloEstimate run(int games, int threads, Path resultsFile) throws IOException {
+        int pairs = (games + 1) / 2;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long startTime = System.nanoTime();
+        try (BufferedWriter writer = Files.newBufferedWriter(resultsFile)) {
+            results = writer;
+            writer.write("# A: " + engineA + "\n# B: " + engineB + "\n# game\tfirst\twinner\tmoves\tmoveMicros\n");
+            List<Future<?>> pending = new ArrayList<>();
+            for (int game = 0; game < pairs * 2; game++) {
+                int gameNumber = game;
+                pending.add(pool.submit(() -> record(gameNumber, playGame(gameNumber))));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            throw new IllegalStateException("Self-play game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        EloEstimate elo = EloEstimate.of(winsA.get(), draws.get(), winsB.get());
+        System.out.printf("Played %d games in %.1f s, %.2f games/s%n", pairs * 2, seconds, pairs * 2 / seconds);
+        System.out.printf("A wins %d, draws %d, B wins %d: A is %s%n", winsA.get(), draws.get(), winsB.get(), elo);
+        System.out.printf("Average move time: A %.2f ms, B %.2f ms%n", averageMillis(0), averageMillis(1));
+        System.out.printf("Average CPU time per move: A %.2f ms, B %.2f ms%n", averageCpuMillis(0), averageCpuMillis(1));
+        System.out.printf("Average nodes per move: A %.0f, B %.0f%n", averageNodes(0), averageNodes(1));
+        return elo;
+    }
+
+    /**
+     * Plays one game from the game's opening, between engines that have forgotten their earlier games.
+     *
+     * @param  gameNumber  the game number, which decides the opening and who moves first
+     *
+     * @return             the result of the game
+     */
+    private GameResult playGame(int gameNumber) {
+        MinimaxAgent[] engines = agents.get();
+        for (MinimaxAgent engine : engines) {
+            engine.newGame();
+        }
+        // Engine A moves first in even games, engine B in odd ones
+        int firstEngine = gameNumber % 2;
+        BitBoard position = new BitBoard(BOARD_SPEC, 1);
+        StringBuilder moves = new StringBuilder();
+        Random random = new Random(seed + gameNumber / 2);
+        for (int ply = 0; ply < openingPlies; ply++) {
+            int column = randomQuietMove(position, random);
+            if (column < 0) {
+                break;
+            }
+            position.play(column);
+            moves.append(column + 1);
+        }
+
+        long[] moveNanos = new long[BOARD_SPEC.cells()];
+        int searchedMoveCount = 0;
+        String winner = "draw";
+        while (!position.isFull()) {
+            int engine = (position.getStoneCount() + firstEngine) % 2;
+            long moveStart = System.nanoTime();
+            // Only the calling thread is measured, the engines of a match search on one thread
+            long cpuStart = THREAD_BEAN.getCurrentThreadCpuTime();
+            int column = engines[engine].findBestColumn(position);
+            long nanos = System.nanoTime() - moveStart;
+            moveNanos[searchedMoveCount++] = nanos;
+            searchNanos[engine].addAndGet(nanos);
+            searchCpuNanos[engine].addAndGet(THREAD_BEAN.getCurrentThreadCpuTime() - cpuStart);
+            searchNodes[engine].addAndGet(engines[engine].getNodes());
+            searchedMoves[engine].incrementAndGet();
+            if (column < 0) {
+                break;
+            }
+            moves.append(column + 1);
+            if (position.isWinningMove(column)) {
+                winner = engine == 0 ? "A" : "B";
+                break;
+            }
+            position.play(column);
+        }
+        long[] searchedMoveNanos = new long[searchedMoveCount];
+        System.arraycopy(moveNanos, 0, searchedMoveNanos, 0, searchedMoveCount);
+        return new GameResult(firstEngine == 0 ? "A" : "B", winner, moves.toString(), searchedMoveNanos);
+    }
+
+    /**
+     * Picks a random move that neither wins nor lets the opponent win at once.
+     *
+     * @param  position  the position to move from
+     * @param  random    the source of randomness of the opening
+     *
+     * @return           the column of the move, or -1 if every move wins or loses
+     */
+    private static int randomQuietMove(BitBoard position, Random random) {
+        long nonLosingMoves = position.nonLosingMoves();
+        int[] candidates = new int[position.getColumns()];
+        int count = 0;
+        for (int column = 0; column < position.getColumns(); column++) {
+            if (position.canPlay(column) && !position.isWinningMove(column)
+                    && (nonLosingMoves & position.columnMask(column)) != 0) {
+                candidates[count++] = column;
+            }
+        }
+        return count == 0 ? -1 : candidates[random.nextInt(count)];
+    }
+
+    /**
+     * Counts a finished game and writes it to the results file.
+     *
+     * @param  gameNumber  the game number
+     * @param  result      the result of the game
+     */
+    private void record(int gameNumber, GameResult result) {
+        switch (result.winner()) {
+            case "A" -> winsA.incrementAndGet();
+            case "B" -> winsB.incrementAndGet();
+            default -> draws.incrementAndGet();
+        }
+        StringBuilder line = new StringBuilder();
+        line.append(gameNumber).append('\t').append(result.first()).append('\t').append(result.winner())
+                .append('\t').append(result.moves()).append('\t');
+        for (int i = 0; i < result.moveNanos().length; i++) {
+            line.append(i == 0 ? "" : ",").append(result.moveNanos()[i] / 1_000);
+        }
+        line.append('\n');
+        long played;
+        synchronized (this) {
+            try {
+                results.write(line.toString());
+                results.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            played = winsA.get() + draws.get() + winsB.get();
+        }
+        if (played % PROGRESS_INTERVAL == 0) {
+            System.out.println(played + " games played...");
+        }
+    }
+
+    private double averageMillis(int engine) {
+        long moves = searchedMoves[engine].get();
+        return moves == 0 ? 0 : searchNanos[engine].get() / 1e6 / moves;
+    }
+
+    private double averageCpuMillis(int engine) {
+        long moves = searchedMoves[engine].get();
+        return moves == 0 ? 0 : searchCpuNanos[engine].get() / 1e6 / moves;
+    }
+
+    private double averageNodes(int engine) {
+        long moves = searchedMoves[engine].get();
+        return moves == 0 ? 0 : (double) searchNodes[engine].get() / moves;
+    }
+
+    /**
+     * Runs a self-play match from the command line.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: SelfPlayRunner games engineA engineB [resultsFile] [threads] [openingPlies]");
+            return;
+        }
+        int games = Integer.parseInt(args[0]);
+        EngineConfig engineA = EngineConfig.parse(args[1]);
+        EngineConfig engineB = EngineConfig.parse(args[2]);
+        Path resultsFile = Path.of(args.length > 3 ? args[3] : "selfplay.tsv");
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int openingPlies = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+
+        SelfPlayRunner runner = new SelfPlayRunner(engineA, engineB, openingPlies, 1);
+        runner.run(games, threads, resultsFile);
+    }
+}
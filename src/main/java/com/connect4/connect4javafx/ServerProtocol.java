@@ -0,0 +1,58 @@
+package com.connect4.connect4javafx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol spoken between GameServer and its clients. Every message in either
+ * direction is a frame of two bytes, a type and an argument, so a move costs two bytes on
+ * the wire and a reader never has to wait for a length prefix.
+ * Client to server:
+ *     NEW_GAME mode       starts a game: VS_ENGINE, VS_ENGINE_SECOND or VS_HUMAN
+ *     MOVE column         plays a 0-based column
+ * Server to client:
+ *     GAME_STARTED seat   the game has started, seat 1 moves first and seat 2 second
+ *     MOVE_PLAYED column  the opponent (engine or human) played a 0-based column
+ *     GAME_OVER result    RESULT_DRAW, RESULT_WIN, RESULT_LOSS, RESULT_ABANDONED or RESULT_TIMEOUT
+ *     ERROR code          the last frame was refused, the game goes on
+ */
+public final class ServerProtocol {
+    public static final int FRAME_SIZE = 2;
+
+    public static final byte NEW_GAME = 0x01;
+    public static final byte MOVE = 0x02;
+
+    public static final byte GAME_STARTED = (byte) 0x81;
+    public static final byte MOVE_PLAYED = (byte) 0x82;
+    public static final byte GAME_OVER = (byte) 0x83;
+    public static final byte ERROR = (byte) 0x84;
+
+    public static final byte VS_ENGINE = 0;
+    public static final byte VS_ENGINE_SECOND = 1;
+    public static final byte VS_HUMAN = 2;
+
+    public static final byte RESULT_DRAW = 0;
+    public static final byte RESULT_WIN = 1;
+    public static final byte RESULT_LOSS = 2;
+    public static final byte RESULT_ABANDONED = 3;
+    public static final byte RESULT_TIMEOUT = 4;
+
+    public static final byte ERROR_UNKNOWN_FRAME = 1;
+    public static final byte ERROR_NO_GAME = 2;
+    public static final byte ERROR_NOT_YOUR_TURN = 3;
+    public static final byte ERROR_ILLEGAL_MOVE = 4;
+    public static final byte ERROR_IN_GAME = 5;
+
+    private ServerProtocol() {
+    }
+
+    /**
+     * Writes a frame into a buffer.
+     *
+     * @param  buffer    the buffer to write to, with room for FRAME_SIZE bytes
+     * @param  type      the frame type
+     * @param  argument  the frame argument
+     */
+    public static void writeFrame(ByteBuffer buffer, byte type, int argument) {
+        buffer.put(type).put((byte) argument);
+    }
+}
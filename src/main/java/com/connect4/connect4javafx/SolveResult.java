@@ -0,0 +1,16 @@
+package com.connect4.connect4javafx;
+
+/**
+ * The proven result of a position, from the point of view of the player to move.
+ *
+ * @param outcome     whether the player to move wins, draws or loses with perfect play
+ * @param pliesToEnd  the number of moves, both players included, until the game ends with perfect play
+ * @param move        a column that achieves the outcome
+ */
+public record SolveResult(Outcome outcome, int pliesToEnd, int move) {
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+}
@@ -0,0 +1,277 @@
+package com.connect4.connect4javafx;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Scores a position by its 4-cell windows and by where each player's threats lie.
+ * Every window keeps an index that encodes the contents of its four cells in base 3 (empty, player 1,
+ * player 2). A table built once from the weights holds, for every index and every stone that can be
+ * added to or taken from it, the next index and the change in score packed into one int, so updating
+ * a window after a move is one table read, with no comparison of cells and no branches. Only windows
+ * that hold the stones of a single player score, a window with both players' stones can never be won.
+ * On top of the windows, the evaluator looks at threats: a window with three stones of a player and
+ * an empty cell, which the player would fill to complete four-in-a-row. Near the end of a game the
+ * columns fill up and whoever is forced to play under the opponent's threat loses. With all other
+ * columns full, the player who moved first gets to play the odd rows (counted from 1 at the bottom)
+ * and the second player the even rows, so a threat is worth much more on the rows its owner will be
+ * able to claim. Which of a window's cells lie on the rows of the player to move first is part of its
+ * index too, so the threat scores are in the same table and reading the score of a leaf is a single
+ * field read.
+ * The weights are read from a properties file with the keys of Weights, any key left out keeps
+ * its default.
+ */
+public class ThreatEvaluator implements Evaluator {
+    private static final int WINDOW_CELLS = 4;
+    private static final int[] CELL_CODE_WEIGHTS = {1, 3, 9, 27};
+    private static final int WINDOW_CODES = 81;
+    // A stone added to a window is one of 4 cells times 2 players
+    private static final int STONES_PER_WINDOW = 8;
+    // The cells of a window that lie on the rows the computer gets to play, one bit per cell. A window
+    // lies along a row or crosses the rows one by one, so only these patterns occur
+    private static final int[] PARITY_PATTERNS = {0b0000, 0b1111, 0b0101, 0b1010};
+    private static final int PATTERN_INDEXES = WINDOW_CODES * STONES_PER_WINDOW;
+    // A transition holds the next index in its low bits and the change in score above them
+    private static final int SCORE_SHIFT = 14;
+    private static final int INDEX_MASK = (1 << SCORE_SHIFT) - 1;
+    // Indexed by a window index plus a stone, for the stone added to the window and taken back off it
+    private final int[] playTransitions = new int[PARITY_PATTERNS.length * PATTERN_INDEXES];
+    private final int[] undoTransitions = new int[PARITY_PATTERNS.length * PATTERN_INDEXES];
+    private int columns = -1;
+    private int rows = -1;
+    private int[] cellWindowStart;
+    // Per player, the window and the stone number of every window a cell is part of
+    private final int[][] cellEntries = new int[2][];
+    // Per window, the offset of its pattern's transitions when the computer moves first and when it moves second
+    private final int[][] windowOffsets = new int[2][];
+    private int[] windowIndexes;
+    private int computerScore;
+
+    /**
+     * The weights of the evaluation, all from the point of view of the player they favour.
+     *
+     * @param one           a window with one stone of a player and three empty cells
+     * @param two           a window with two stones of a player and two empty cells
+     * @param three         a window with three stones of a player and one empty cell
+     * @param threat        a threat on a row the player will not get to play
+     * @param parityThreat  a threat on a row the player will get to play, odd for the first player, even for the second
+     */
+    public record Weights(int one, int two, int three, int threat, int parityThreat) {
+        public static final Weights DEFAULT = new Weights(1, 8, 8, 8, 48);
+
+        /**
+         * Reads weights from a properties file, such as "two=8" and "parityThreat=48" on separate lines.
+         *
+         * @param  file         the properties file
+         *
+         * @return              the weights, the defaults for keys left out
+         *
+         * @throws IOException  if the file cannot be read or a value is not a number
+         */
+        public static Weights load(Path file) throws IOException {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            try {
+                return new Weights(
+                        value(properties, "one", DEFAULT.one()),
+                        value(properties, "two", DEFAULT.two()),
+                        value(properties, "three", DEFAULT.three()),
+                        value(properties, "threat", DEFAULT.threat()),
+                        value(properties, "parityThreat", DEFAULT.parityThreat()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid weight in " + file, e);
+            }
+        }
+
+        private static int value(Properties properties, String key, int defaultValue) {
+            String value = properties.getProperty(key);
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        }
+    }
+
+    public ThreatEvaluator() {
+        this(Weights.DEFAULT);
+    }
+
+    public ThreatEvaluator(Weights weights) {
+        int[] countWeights = {0, weights.one(), weights.two(), weights.three(), 0};
+        for (int patternNumber = 0; patternNumber < PARITY_PATTERNS.length; patternNumber++) {
+            int pattern = PARITY_PATTERNS[patternNumber];
+            // Score each window code from player 2's point of view, like WindowEvaluator
+            int[] windowScores = new int[WINDOW_CODES];
+            for (int code = 0; code < WINDOW_CODES; code++) {
+                int[] counts = new int[3];
+                int emptyCell = -1;
+                for (int cell = 0; cell < WINDOW_CELLS; cell++) {
+                    int value = code / CELL_CODE_WEIGHTS[cell] % 3;
+                    counts[value]++;
+                    if (value == 0) {
+                        emptyCell = cell;
+                    }
+                }
+                boolean computerParity = emptyCell >= 0 && (pattern & (1 << emptyCell)) != 0;
+                if (counts[1] == 0) {
+                    windowScores[code] = countWeights[counts[2]];
+                    if (counts[2] == 3) {
+                        windowScores[code] += computerParity ? weights.parityThreat() : weights.threat();
+                    }
+                } else if (counts[2] == 0) {
+                    windowScores[code] = -countWeights[counts[1]];
+                    if (counts[1] == 3) {
+                        windowScores[code] -= computerParity ? weights.threat() : weights.parityThreat();
+                    }
+                }
+            }
+            // Stone number (cell << 1) | (player - 1) adds player * 3^cell to the code, and the index is
+            // the pattern's offset plus the code times 8
+            int offset = patternNumber * PATTERN_INDEXES;
+            for (int code = 0; code < WINDOW_CODES; code++) {
+                for (int cell = 0; cell < WINDOW_CELLS; cell++) {
+                    if (code / CELL_CODE_WEIGHTS[cell] % 3 != 0) {
+                        continue;
+                    }
+                    for (int player = 1; player <= 2; player++) {
+                        int stone = (cell << 1) | (player - 1);
+                        int next = code + player * CELL_CODE_WEIGHTS[cell];
+                        int scoreChange = windowScores[next] - windowScores[code];
+                        int index = offset + code * STONES_PER_WINDOW;
+                        int nextIndex = offset + next * STONES_PER_WINDOW;
+                        playTransitions[index + stone] = scoreChange << SCORE_SHIFT | nextIndex;
+                        undoTransitions[nextIndex + stone] = -scoreChange << SCORE_SHIFT | index;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset(BitBoard position) {
+        if (position.getColumns() != columns || position.getRows() != rows) {
+            buildWindows(position);
+        }
+        computerScore = 0;
+        // The player to move moved first if an even number of stones has been played
+        int firstPlayer = position.getStoneCount() % 2 == 0 ? position.getPlayerToMove() : 3 - position.getPlayerToMove();
+        System.arraycopy(windowOffsets[firstPlayer == 2 ? 0 : 1], 0, windowIndexes, 0, windowIndexes.length);
+        for (int column = 0; column < columns; column++) {
+            for (int height = 0; height < rows; height++) {
+                int bit = position.bitIndex(column, height);
+                if ((position.getPlayerMask(1) & (1L << bit)) != 0) {
+                    play(bit, 1);
+                } else if ((position.getPlayerMask(2) & (1L << bit)) != 0) {
+                    play(bit, 2);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void play(int bit, int player) {
+        int[] entries = cellEntries[player - 1];
+        for (int i = cellWindowStart[bit]; i < cellWindowStart[bit + 1]; i++) {
+            int entry = entries[i];
+            int window = entry >>> 3;
+            int transition = playTransitions[windowIndexes[window] + (entry & 7)];
+            windowIndexes[window] = transition & INDEX_MASK;
+            computerScore += transition >> SCORE_SHIFT;
+        }
+    }
+
+    @Override
+    public void undo(int bit, int player) {
+        int[] entries = cellEntries[player - 1];
+        for (int i = cellWindowStart[bit]; i < cellWindowStart[bit + 1]; i++) {
+            int entry = entries[i];
+            int window = entry >>> 3;
+            int transition = undoTransitions[windowIndexes[window] + (entry & 7)];
+            windowIndexes[window] = transition & INDEX_MASK;
+            computerScore += transition >> SCORE_SHIFT;
+        }
+    }
+
+    @Override
+    public int evaluate(int player) {
+        return player == 2 ? computerScore : -computerScore;
+    }
+
+    /**
+     * Enumerates every 4-cell window of the board and builds the cell-to-windows index, one per player.
+     * Each entry holds the window shifted left by 3 and the stone number of the player's stone on the
+     * cell. Each window also records which parity pattern it starts from, for either player moving first.
+     *
+     * @param  position  a position with the board size to prepare for
+     */
+    private void buildWindows(BitBoard position) {
+        columns = position.getColumns();
+        rows = position.getRows();
+        long oddRowMask = 0;
+        for (int column = 0; column < columns; column++) {
+            // Height 0 is the first row from the bottom
+            for (int height = 0; height < rows; height += 2) {
+                oddRowMask |= 1L << position.bitIndex(column, height);
+            }
+        }
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        int maxWindows = directions.length * columns * rows;
+        int[] windowCells = new int[maxWindows * WINDOW_CELLS];
+        int windowCount = 0;
+        for (int column = 0; column < columns; column++) {
+            for (int height = 0; height < rows; height++) {
+                for (int[] direction : directions) {
+                    int lastColumn = column + 3 * direction[0];
+                    int lastHeight = height + 3 * direction[1];
+                    if (lastColumn >= columns || lastHeight < 0 || lastHeight >= rows) {
+                        continue;
+                    }
+                    for (int offset = 0; offset < WINDOW_CELLS; offset++) {
+                        windowCells[windowCount * WINDOW_CELLS + offset] =
+                                position.bitIndex(column + offset * direction[0], height + offset * direction[1]);
+                    }
+                    windowCount++;
+                }
+            }
+        }
+
+        // Counting sort of the window cells by bit index
+        int bits = position.bitIndex(columns, 0);
+        cellWindowStart = new int[bits + 1];
+        for (int i = 0; i < windowCount * WINDOW_CELLS; i++) {
+            cellWindowStart[windowCells[i] + 1]++;
+        }
+        for (int bit = 0; bit < bits; bit++) {
+            cellWindowStart[bit + 1] += cellWindowStart[bit];
+        }
+        cellEntries[0] = new int[windowCount * WINDOW_CELLS];
+        cellEntries[1] = new int[windowCount * WINDOW_CELLS];
+        int[] next = cellWindowStart.clone();
+        for (int i = 0; i < windowCount * WINDOW_CELLS; i++) {
+            int entry = next[windowCells[i]]++;
+            cellEntries[0][entry] = (i / WINDOW_CELLS) << 3 | (i % WINDOW_CELLS) << 1;
+            cellEntries[1][entry] = (i / WINDOW_CELLS) << 3 | (i % WINDOW_CELLS) << 1 | 1;
+        }
+        windowIndexes = new int[windowCount];
+        for (int firstPlayer = 0; firstPlayer < 2; firstPlayer++) {
+            // The player who moves first gets to play the odd rows
+            long computerRows = firstPlayer == 0 ? oddRowMask : ~oddRowMask;
+            windowOffsets[firstPlayer] = new int[windowCount];
+            for (int window = 0; window < windowCount; window++) {
+                int pattern = 0;
+                for (int cell = 0; cell < WINDOW_CELLS; cell++) {
+                    if ((computerRows & (1L << windowCells[window * WINDOW_CELLS + cell])) != 0) {
+                        pattern |= 1 << cell;
+                    }
+                }
+                int patternNumber = 0;
+                while (PARITY_PATTERNS[patternNumber] != pattern) {
+                    patternNumber++;
+                }
+                windowOffsets[firstPlayer][window] = patternNumber * PATTERN_INDEXES;
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.connect4.connect4javafx;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size transposition table keyed by the Zobrist hash of a position.
+ * Entries live in two primitive long arrays, so even a large table is a couple of objects
+ * the garbage collector never has to walk. Each entry is packed into a single long holding
+ * the score, the search depth, the bound type, the best move and the search generation.
+ * The move takes 6 bits, enough for the 32 columns of the widest board a BoardSpec accepts.
+ * The key is stored XORed with the entry, so a torn read from another thread fails the key
+ * check instead of returning a mixed-up entry.
+ * Slots come in pairs: the first keeps the deepest entry of the current search, the second
+ * always takes whatever the first one rejected.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final long VALID_BIT = 1L << 62;
+    private static final int MOVE_MASK = 0x3F;
+    private final long[] keys;
+    private final long[] entries;
+    private final int indexMask;
+    private int generation;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Creates a table using at most the given number of megabytes.
+     * The number of entries is rounded down to a power of two.
+     *
+     * @param  sizeInMegabytes  the memory budget of the table
+     */
+    public TranspositionTable(int sizeInMegabytes) {
+        if (sizeInMegabytes <= 0) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB, was " + sizeInMegabytes);
+        }
+        long maxEntries = (long) sizeInMegabytes * 1024 * 1024 / ENTRY_BYTES;
+        int capacity = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+        keys = new long[capacity];
+        entries = new long[capacity];
+        indexMask = capacity - 2;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param  key  the Zobrist hash of the position
+     *
+     * @return      the packed entry, or 0 if the position is not in the table
+     */
+    public long probe(long key) {
+        probes.increment();
+        int index = (int) key & indexMask;
+        for (int slot = index; slot < index + 2; slot++) {
+            long entry = entries[slot];
+            if (entry != 0 && (keys[slot] ^ entry) == key) {
+                hits.increment();
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search.
+     * An entry of the current search only gives up the first slot to an entry searched at
+     * least as deep, entries from older searches are always replaced.
+     *
+     * @param  key    the Zobrist hash of the position
+     * @param  score  the score, from the point of view of the player to move
+     * @param  depth  the remaining depth the score was searched to
+     * @param  bound  EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param  move   the best column found, or -1 if there is none
+     */
+    public void store(long key, int score, int depth, int bound, int move) {
+        long entry = pack(score, depth, bound, move, generation);
+        int slot = (int) key & indexMask;
+        long existing = entries[slot];
+        boolean sameKey = (keys[slot] ^ existing) == key;
+        if (existing != 0 && !sameKey && generationOf(existing) == generation && depth < depthOf(existing)) {
+            slot++;
+            existing = entries[slot];
+            sameKey = (keys[slot] ^ existing) == key;
+        }
+        if (existing != 0 && !sameKey) {
+            collisions.increment();
+        }
+        stores.increment();
+        entries[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    /**
+     * Starts a new search, so that entries of earlier searches can be replaced first.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes every entry and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        collisions.reset();
+    }
+
+    private static long pack(int score, int depth, int bound, int move, int generation) {
+        return (score & 0xFFFFFFFFL)
+                | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) ((move + 1) & MOVE_MASK) << 42)
+                | ((long) generation << 48)
+                | VALID_BIT;
+    }
+
+    /**
+     * Returns the score of a packed entry.
+     *
+     * @param  entry  an entry returned by probe
+     *
+     * @return        the score, from the point of view of the player to move
+     */
+    public static int scoreOf(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Returns the depth of a packed entry.
+     *
+     * @param  entry  an entry returned by probe
+     *
+     * @return        the remaining depth the entry was searched to
+     */
+    public static int depthOf(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * Returns the bound type of a packed entry.
+     *
+     * @param  entry  an entry returned by probe
+     *
+     * @return        EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int boundOf(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Returns the best move of a packed entry.
+     *
+     * @param  entry  an entry returned by probe
+     *
+     * @return        the best column, or -1 if there is none
+     */
+    public static int moveOf(long entry) {
+        return ((int) (entry >>> 42) & MOVE_MASK) - 1;
+    }
+
+    private static int generationOf(long entry) {
+        return (int) (entry >>> 48) & 0xFF;
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     *
+     * @return  the capacity of the table
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of lookups since the table was created or cleared.
+     *
+     * @return  the number of probes
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * Returns the number of lookups that found their position.
+     *
+     * @return  the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of entries written.
+     *
+     * @return  the number of stores
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Returns the number of stores that overwrote an entry for a different position.
+     *
+     * @return  the number of collisions
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+}
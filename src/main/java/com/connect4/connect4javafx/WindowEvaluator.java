@@ -0,0 +1,142 @@
+package com.connect4.connect4javafx;
+
+import java.util.Arrays;
+
+/**
+ * Scores a position by looking at every 4-cell window (row, column and both diagonals)
+ * and how many tokens each player has in it.
+ * Instead of rescanning the board at every leaf, the evaluator keeps a code per window that
+ * encodes both players' counts, plus the running total of all window scores. A move only
+ * touches the windows through its cell (at most 16 on a 7x6 board), found through a
+ * precomputed cell-to-windows index, and reading the score is O(1).
+ */
+public class WindowEvaluator implements Evaluator {
+    private static final int COUNT_BASE = 5;
+    private static final int[] WINDOW_SCORES = new int[COUNT_BASE * COUNT_BASE];
+    private int columns = -1;
+    private int rows = -1;
+    private int[] cellWindowStart;
+    private int[] cellWindows;
+    private int[] windowCodes;
+    private int computerScore;
+
+    static {
+        // Code = computer count * 5 + human count, scored from the computer's point of view
+        for (int computerCount = 0; computerCount < COUNT_BASE; computerCount++) {
+            for (int humanCount = 0; humanCount < COUNT_BASE; humanCount++) {
+                WINDOW_SCORES[computerCount * COUNT_BASE + humanCount] =
+                        evaluatePosition(computerCount, humanCount) - evaluatePosition(humanCount, computerCount);
+            }
+        }
+    }
+
+    @Override
+    public void reset(BitBoard position) {
+        if (position.getColumns() != columns || position.getRows() != rows) {
+            buildWindows(position);
+        }
+        Arrays.fill(windowCodes, 0);
+        computerScore = 0;
+        for (int column = 0; column < columns; column++) {
+            for (int height = 0; height < rows; height++) {
+                int bit = position.bitIndex(column, height);
+                if ((position.getPlayerMask(1) & (1L << bit)) != 0) {
+                    play(bit, 1);
+                } else if ((position.getPlayerMask(2) & (1L << bit)) != 0) {
+                    play(bit, 2);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void play(int bit, int player) {
+        int step = player == 2 ? COUNT_BASE : 1;
+        for (int i = cellWindowStart[bit]; i < cellWindowStart[bit + 1]; i++) {
+            int window = cellWindows[i];
+            int code = windowCodes[window];
+            computerScore += WINDOW_SCORES[code + step] - WINDOW_SCORES[code];
+            windowCodes[window] = code + step;
+        }
+    }
+
+    @Override
+    public void undo(int bit, int player) {
+        int step = player == 2 ? COUNT_BASE : 1;
+        for (int i = cellWindowStart[bit]; i < cellWindowStart[bit + 1]; i++) {
+            int window = cellWindows[i];
+            int code = windowCodes[window];
+            computerScore += WINDOW_SCORES[code - step] - WINDOW_SCORES[code];
+            windowCodes[window] = code - step;
+        }
+    }
+
+    @Override
+    public int evaluate(int player) {
+        return player == 2 ? computerScore : -computerScore;
+    }
+
+    /**
+     * Evaluates a 4-cell window based on the number of player and opponent tokens in it.
+     *
+     * @param  playerCount    the number of the player's tokens in the window
+     * @param  opponentCount  the number of the opponent's tokens in the window
+     *
+     * @return                the score of the window for the player
+     */
+    private static int evaluatePosition(int playerCount, int opponentCount) {
+        int score = playerCount - opponentCount;
+
+        // Give higher scores for positions with more player tokens
+        if (score == 2) score *= 2;
+        else if (score == 3) score *= 5;
+
+        return score;
+    }
+
+    /**
+     * Enumerates every 4-cell window of the board and builds the cell-to-windows index.
+     *
+     * @param  position  a position with the board size to prepare for
+     */
+    private void buildWindows(BitBoard position) {
+        columns = position.getColumns();
+        rows = position.getRows();
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        int maxWindows = directions.length * columns * rows;
+        int[] windowCells = new int[maxWindows * 4];
+        int windowCount = 0;
+        for (int column = 0; column < columns; column++) {
+            for (int height = 0; height < rows; height++) {
+                for (int[] direction : directions) {
+                    int lastColumn = column + 3 * direction[0];
+                    int lastHeight = height + 3 * direction[1];
+                    if (lastColumn >= columns || lastHeight < 0 || lastHeight >= rows) {
+                        continue;
+                    }
+                    for (int offset = 0; offset < 4; offset++) {
+                        windowCells[windowCount * 4 + offset] =
+                                position.bitIndex(column + offset * direction[0], height + offset * direction[1]);
+                    }
+                    windowCount++;
+                }
+            }
+        }
+
+        // Counting sort of the window cells by bit index
+        int bits = position.bitIndex(columns, 0);
+        cellWindowStart = new int[bits + 1];
+        for (int i = 0; i < windowCount * 4; i++) {
+            cellWindowStart[windowCells[i] + 1]++;
+        }
+        for (int bit = 0; bit < bits; bit++) {
+            cellWindowStart[bit + 1] += cellWindowStart[bit];
+        }
+        cellWindows = new int[windowCount * 4];
+        int[] next = cellWindowStart.clone();
+        for (int i = 0; i < windowCount * 4; i++) {
+            cellWindows[next[windowCells[i]]++] = i / 4;
+        }
+        windowCodes = new int[windowCount];
+    }
+}
@@ -1,6 +1,8 @@
 module com.connect4.connect4usingjavafx {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
+    requires jdk.jfr;
 
     requires com.almasb.fxgl.all;
 
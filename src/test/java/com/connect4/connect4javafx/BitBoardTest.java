@@ -0,0 +1,90 @@
+package com.connect4.connect4javafx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks win detection on small and narrow boards, where the generic shift tests of BitBoard run.
+ */
+class BitBoardTest {
+    @Test
+    void findsHorizontalWinOnOneRow() {
+        // Player 1 has the left three columns, player 2 the right three
+        BitBoard position = position(8, 1, "152637");
+        assertFalse(position.hasWon(1));
+        assertFalse(position.hasWon(2));
+        assertTrue(position.isWinningMove(3));
+        position.play(3);
+        assertTrue(position.hasWon(1));
+    }
+
+    @Test
+    void findsVerticalWinOnTwoColumns() {
+        BitBoard position = position(2, 4, "121212");
+        assertFalse(position.hasWon(1));
+        assertFalse(position.hasWon(2));
+        assertTrue(position.isWinningMove(0));
+        position.play(0);
+        assertTrue(position.hasWon(1));
+    }
+
+    @Test
+    void findsDiagonalWinsOnFourByFour() {
+        // Player 1 holds three cells of the rising diagonal, the fourth is the top of column 4
+        BitBoard rising = position(4, 4, "1223433414");
+        assertFalse(rising.hasWon(1));
+        assertFalse(rising.hasWon(2));
+        assertTrue(rising.isWinningMove(3));
+        assertFalse(rising.isWinningMove(0));
+
+        BitBoard falling = position(4, 4, "4332122141");
+        assertFalse(falling.hasWon(1));
+        assertFalse(falling.hasWon(2));
+        assertTrue(falling.isWinningMove(0));
+        assertFalse(falling.isWinningMove(3));
+    }
+
+    @Test
+    void findsNoWinOnTallestNarrowBoard() {
+        // 3x19 is the tallest 3-column board, its diagonal shifts come closest to 64 bits
+        BitBoard position = position(3, 19, "123");
+        assertFalse(position.hasWon(1));
+        assertFalse(position.hasWon(2));
+        for (int column = 0; column < 3; column++) {
+            assertFalse(position.isWinningMove(column), "single stone in column " + column);
+        }
+        assertEquals(0, position.winningCells(position.getPlayerMask(1)));
+        assertEquals(0, position.winningCells(position.getPlayerMask(2)));
+        position = position(3, 19, "1212121");
+        assertTrue(position.hasWon(1));
+        assertFalse(position.hasWon(2));
+    }
+
+    @Test
+    void rejectsBoardsWhoseShiftsWrap() {
+        assertThrows(IllegalArgumentException.class, () -> new BoardSpec(1, 63));
+        assertThrows(IllegalArgumentException.class, () -> new BoardSpec(2, 31));
+        assertThrows(IllegalArgumentException.class, () -> new BoardSpec(3, 20));
+    }
+
+    /**
+     * Plays a sequence of moves, player 1 first.
+     *
+     * @param  columns  the number of columns of the board
+     * @param  rows     the number of rows of the board
+     * @param  moves    the columns of the moves, numbered from 1
+     *
+     * @return          the position after the moves
+     */
+    private static BitBoard position(int columns, int rows, String moves) {
+        BitBoard position = new BitBoard(columns, rows, 1);
+        for (char move : moves.toCharArray()) {
+            position.play(move - '1');
+        }
+        return position;
+    }
+}
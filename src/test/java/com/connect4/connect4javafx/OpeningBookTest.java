@@ -0,0 +1,59 @@
+package com.connect4.connect4javafx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that every entry written to a book file is found again by OpeningBook.lookup.
+ */
+class OpeningBookTest {
+    private static final BoardSpec EIGHT_BY_SIX = new BoardSpec(8, 6);
+
+    @Test
+    void findsEntriesWithTheTopKeyBitSet(@TempDir Path directory) throws IOException {
+        // On 8x6 a key fills 56 bits; with both edge columns full the top bit is set, so the entry is negative
+        String[] positions = {"", "1", "45", "4455", "111111888888", "1111118888884"};
+        long[] entries = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            BitBoard position = position(positions[i]);
+            entries[i] = OpeningBook.entry(canonicalKey(position), i % EIGHT_BY_SIX.columns());
+        }
+        assertTrue(entries[4] < 0, "an entry with the top key bit set");
+
+        Path file = directory.resolve("book.bin");
+        OpeningBookGenerator.write(file, EIGHT_BY_SIX, 13, entries);
+        OpeningBook book = OpeningBook.open(file);
+        assertEquals(positions.length, book.size());
+        for (int i = 0; i < positions.length; i++) {
+            BitBoard position = position(positions[i]);
+            int column = i % EIGHT_BY_SIX.columns();
+            int expected = position.getKey() == canonicalKey(position) ? column : EIGHT_BY_SIX.columns() - 1 - column;
+            assertEquals(expected, book.lookup(position), "book move of \"" + positions[i] + "\"");
+        }
+    }
+
+    private static long canonicalKey(BitBoard position) {
+        return Math.min(position.getKey(), position.getMirroredKey());
+    }
+
+    /**
+     * Plays a sequence of moves on the 8x6 board.
+     *
+     * @param  moves  the columns of the moves, numbered from 1
+     *
+     * @return        the position after the moves
+     */
+    private static BitBoard position(String moves) {
+        BitBoard position = new BitBoard(EIGHT_BY_SIX, 1);
+        for (char move : moves.toCharArray()) {
+            position.play(move - '1');
+        }
+        return position;
+    }
+}
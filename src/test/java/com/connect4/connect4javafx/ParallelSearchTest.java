@@ -0,0 +1,63 @@
+package com.connect4.connect4javafx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks Lazy SMP against the serial search: at a fixed depth the helpers only fill the shared
+ * transposition table, so the best move must not change, while the helpers do real work.
+ */
+class ParallelSearchTest {
+    private static final int SEARCH_DEPTH = 12;
+    private static final int THREADS = 4;
+    // Openings and a midgame, all with more empty cells than the solver threshold
+    private static final String[] POSITIONS = {"43", "4453", "3455", "625562146625"};
+
+    @Test
+    void parallelSearchFindsTheSerialMove() {
+        MinimaxAgent serial = agent(1);
+        MinimaxAgent parallel = agent(THREADS);
+        long serialNodes = 0;
+        long helperNodes = 0;
+        try {
+            for (String moves : POSITIONS) {
+                int serialColumn = serial.findBestColumn(position(moves));
+                int parallelColumn = parallel.findBestColumn(position(moves));
+                assertEquals(serialColumn, parallelColumn, "best move of " + moves);
+                assertEquals(0, serial.getHelperNodes(), "helper nodes of a single thread on " + moves);
+                serialNodes += serial.getNodes();
+                helperNodes += parallel.getHelperNodes();
+            }
+        } finally {
+            serial.shutdown();
+            parallel.shutdown();
+        }
+        // Helpers that stop at their first time check manage about a tenth of this, even on a single core
+        assertTrue(helperNodes > serialNodes / 3,
+                "helpers searched " + helperNodes + " nodes, the serial search " + serialNodes);
+    }
+
+    private static MinimaxAgent agent(int threads) {
+        MinimaxAgent agent = new MinimaxAgent();
+        agent.setSearchLimits(SearchLimits.depth(SEARCH_DEPTH));
+        agent.setThreads(threads);
+        return agent;
+    }
+
+    /**
+     * Plays a sequence of moves on the standard board.
+     *
+     * @param  moves  the columns of the moves, numbered from 1
+     *
+     * @return        the position after the moves
+     */
+    private static BitBoard position(String moves) {
+        BitBoard position = new BitBoard(7, 6, 1);
+        for (char move : moves.toCharArray()) {
+            position.play(move - '1');
+        }
+        return position;
+    }
+}
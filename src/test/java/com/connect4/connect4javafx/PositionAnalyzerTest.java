@@ -0,0 +1,47 @@
+package com.connect4.connect4javafx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that journal games are analyzed on their own board, with their own first player.
+ */
+class PositionAnalyzerTest {
+    @Test
+    void analyzesJournalGamesOnTheirOwnBoard(@TempDir Path directory) throws IOException, InterruptedException {
+        Path journal = directory.resolve("journal");
+        try (GameJournal gameJournal = new GameJournal(journal)) {
+            // A wide game the computer opened, in the tenth column, then a standard game
+            gameJournal.append(record(new BoardSpec(10, 5), 2, 9, 8, 9, 8, 4, 5));
+            gameJournal.append(record(BoardSpec.STANDARD, 1, 3, 3, 2, 4));
+        }
+        Path output = directory.resolve("results.tsv");
+
+        long analyzed = new PositionAnalyzer(EngineConfig.parse("depth=4,hash=1")).run(journal, output, 2, 4);
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(10, analyzed);
+        assertEquals(10, lines.size());
+        for (String line : lines) {
+            assertFalse(line.contains("error"), line);
+        }
+        assertEquals(":", lines.get(1).split("\t")[0]);
+        assertEquals("4", lines.get(7).split("\t")[0]);
+    }
+
+    private static GameRecord record(BoardSpec boardSpec, int firstPlayer, int... columns) {
+        byte[] moves = new byte[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            moves[i] = (byte) columns[i];
+        }
+        return new GameRecord(boardSpec, firstPlayer, 0, moves, GameRecord.UNFINISHED, new int[columns.length]);
+    }
+}
@@ -0,0 +1,183 @@
+package com.connect4.connect4javafx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a ProtocolEngine process through its stdin and stdout pipes and checks its answers:
+ * start-up, legal best moves, streamed info lines, time limits, stop, and error handling.
+ * Each test starts its own engine with nothing but the java launcher and the test's class path.
+ */
+class ProtocolEngineTest {
+    private static final long REPLY_TIMEOUT_MILLIS = 30_000;
+    private static final long MOVE_TIME_TOLERANCE_MILLIS = 300;
+    private Process process;
+    private PrintWriter commands;
+    private final BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void startEngine() throws IOException {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        process = new ProcessBuilder(java.toString(), "-cp", engineClassPath(), ProtocolEngine.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        commands = new PrintWriter(process.getOutputStream(), true, StandardCharsets.UTF_8);
+        Thread reader = new Thread(() -> {
+            try (BufferedReader output = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    replies.add(line);
+                }
+            } catch (IOException e) {
+                replies.add("test error " + e.getMessage());
+            }
+        }, "protocol-test-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @AfterEach
+    void stopEngine() {
+        process.destroy();
+    }
+
+    @Test
+    void answersReadyAfterStartUp() throws InterruptedException {
+        send("isready");
+        assertEquals("readyok", nextReply());
+    }
+
+    @Test
+    void streamsOneInfoLinePerDepth() throws InterruptedException {
+        send("position 4453");
+        send("go depth 8");
+        List<String> infos = new ArrayList<>();
+        String bestMove = awaitBestMove(infos);
+        assertEquals(8, infos.size(), "info lines " + infos);
+        assertTrue(infos.get(7).startsWith("info depth 8 "), infos.get(7));
+        assertLegalBestMove(bestMove, "4453");
+    }
+
+    @Test
+    void answersWithinTheMoveTime() throws InterruptedException {
+        send("position 44");
+        long startTime = System.nanoTime();
+        send("go movetime 300");
+        String bestMove = awaitBestMove(new ArrayList<>());
+        long millis = millisSince(startTime);
+        assertTrue(millis <= 300 + MOVE_TIME_TOLERANCE_MILLIS, millis + " ms");
+        assertLegalBestMove(bestMove, "44");
+    }
+
+    @Test
+    void stopEndsALongSearchQuickly() throws InterruptedException {
+        send("position");
+        send("go movetime 60000");
+        Thread.sleep(200);
+        long startTime = System.nanoTime();
+        send("stop");
+        String bestMove = awaitBestMove(new ArrayList<>());
+        long millis = millisSince(startTime);
+        assertTrue(millis <= MOVE_TIME_TOLERANCE_MILLIS, millis + " ms");
+        assertLegalBestMove(bestMove, "");
+    }
+
+    @Test
+    void answersNoMoveInAWonPosition() throws InterruptedException {
+        send("position 1212121");
+        send("go");
+        assertEquals("bestmove none", awaitBestMove(new ArrayList<>()));
+    }
+
+    @Test
+    void reportsAnIllegalMove() throws InterruptedException {
+        send("position 11111111");
+        String error = nextReply();
+        assertNotNull(error, "no reply");
+        assertTrue(error.startsWith("info string error"), error);
+    }
+
+    @Test
+    void quitEndsTheProcess() throws InterruptedException {
+        send("quit");
+        assertTrue(process.waitFor(REPLY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "still running");
+        assertEquals(0, process.exitValue());
+    }
+
+    /**
+     * Returns a class path holding the engine's classes. Surefire puts them on the module path
+     * when the project has a module-info, and the engine runs just as well from the class path.
+     *
+     * @return  the class path for the engine process
+     */
+    private static String engineClassPath() {
+        String modulePath = System.getProperty("jdk.module.path");
+        String classPath = System.getProperty("java.class.path");
+        return modulePath == null ? classPath : modulePath + File.pathSeparator + classPath;
+    }
+
+    private void send(String command) {
+        commands.println(command);
+    }
+
+    private String nextReply() throws InterruptedException {
+        return replies.poll(REPLY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads replies up to the bestmove line.
+     *
+     * @param  infos  receives the info lines sent before the bestmove
+     *
+     * @return        the bestmove line, or null if none came in time
+     */
+    private String awaitBestMove(List<String> infos) throws InterruptedException {
+        String reply;
+        while ((reply = nextReply()) != null) {
+            if (reply.startsWith("bestmove")) {
+                return reply;
+            }
+            infos.add(reply);
+        }
+        return null;
+    }
+
+    /**
+     * Checks that a bestmove line names a column that can be played after the given moves.
+     *
+     * @param  bestMove  the bestmove line
+     * @param  moves     the moves of the position, one 1-based column digit per move
+     */
+    private static void assertLegalBestMove(String bestMove, String moves) {
+        assertNotNull(bestMove, "no bestmove");
+        assertTrue(bestMove.matches("bestmove [1-7]"), bestMove);
+        BitBoard position = new BitBoard(BoardSpec.STANDARD, 1);
+        for (char move : moves.toCharArray()) {
+            position.play(move - '1');
+        }
+        assertTrue(position.canPlay(bestMove.charAt(bestMove.length() - 1) - '1'), bestMove + " after " + moves);
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
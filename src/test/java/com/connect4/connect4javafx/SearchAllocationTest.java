@@ -0,0 +1,54 @@
+package com.connect4.connect4javafx;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the search hot path allocates nothing once warmed up: no arrays per node, no boxing,
+ * no move lists. The tables are created by the first searches, so only later searches are measured.
+ */
+class SearchAllocationTest {
+    // Enough searches for the JIT to compile the search, so escape analysis has removed what it can
+    private static final int WARMUP_SEARCHES = 200;
+    private static final int SEARCH_DEPTH = 8;
+    // A midgame position with more empty cells than the solver threshold, so the heuristic search runs
+    private static final String MIDGAME = "625562146625";
+
+    @Test
+    void searchAllocatesNothingAfterWarmup() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MinimaxAgent agent = new MinimaxAgent();
+        agent.setSearchLimits(SearchLimits.depth(SEARCH_DEPTH));
+        BitBoard position = position(MIDGAME);
+        for (int i = 0; i < WARMUP_SEARCHES; i++) {
+            agent.getTranspositionTable().clear();
+            agent.searchColumn(position, System.nanoTime());
+        }
+
+        // An empty table makes the measured search a full one rather than a few table hits
+        agent.getTranspositionTable().clear();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int column = agent.searchColumn(position, System.nanoTime());
+        long after = threads.getCurrentThreadAllocatedBytes();
+
+        assertEquals(0, after - before, "bytes allocated by a search to column " + column);
+    }
+
+    /**
+     * Plays a sequence of moves on the standard board.
+     *
+     * @param  moves  the columns of the moves, numbered from 1
+     *
+     * @return        the position after the moves
+     */
+    private static BitBoard position(String moves) {
+        BitBoard position = new BitBoard(7, 6, 1);
+        for (char move : moves.toCharArray()) {
+            position.play(move - '1');
+        }
+        return position;
+    }
+}